@@ -12,11 +12,46 @@ import logist.task.Task;
 import template.State;
 
 public class AStar {
-    // We define a State comparator to find the state with the minimum cost
+    // Weights of the anytime search: it starts with an inflated heuristic and tightens it while time remains
+    private static final double INITIAL_WEIGHT = 2.5;
+    private static final double WEIGHT_STEP = 0.5;
+    private static final int EXPANSIONS_BETWEEN_DEADLINE_CHECKS = 256;
+
+    // We define a State comparator to find the state with the minimum cost. f is memoized in the states, so this only
+    // compares two doubles
     public static class StateComparator implements Comparator<State> {
         @Override
         public int compare(State s1, State s2) {
-            return (int) (s1.getCostFunctionValue() - s2.getCostFunctionValue());
+            return Double.compare(s1.getCostFunctionValue(), s2.getCostFunctionValue());
+        }
+    }
+
+    // Same as above but with f = g + weight * h, used by the anytime search
+    public static class WeightedStateComparator implements Comparator<State> {
+        private final double weight;
+
+        public WeightedStateComparator(double weight) {
+            this.weight = weight;
+        }
+
+        @Override
+        public int compare(State s1, State s2) {
+            return Double.compare(s1.getCostToReach() + weight * s1.getHeuristicValue(),
+                    s2.getCostToReach() + weight * s2.getHeuristicValue());
+        }
+    }
+
+    // Result of the anytime search: the best plan found, its length in km and how far from the optimal length it can
+    // be (bound = 1 means the plan is optimal, cost <= bound * optimal cost in any case)
+    public static class Result {
+        public final List<PD_Action> plan;
+        public final double cost;
+        public final double bound;
+
+        public Result(List<PD_Action> plan, double cost, double bound) {
+            this.plan = plan;
+            this.cost = cost;
+            this.bound = bound;
         }
     }
 
@@ -29,7 +64,7 @@ public class AStar {
         while (!Q.isEmpty()) {
             State node = Q.remove(); // Pop the state with the least cost
 
-            // Check whether the state is a final one. In that case we return the plan
+            // Check whether the state is a final one. In that case we rebuild the plan from its parents and return it
             if (node.isFinal()) {
                 return node.getPDPlan();
             }
@@ -44,4 +79,83 @@ public class AStar {
         return null; // We should never reach this step
     }
 
-}
\ No newline at end of file
+    // Anytime version of the search for a time-limited caller (deadline in System.currentTimeMillis() time).
+    // It runs weighted A* with a decreasing weight (restarting each time), pruning every node that cannot beat the
+    // best plan found so far, and returns that plan when the deadline is reached or when it is proven optimal. An
+    // interrupt of the thread ends it like the deadline.
+    public static Result anytimeAStarPlan(Vehicle vehicle, List<Task> available, State initialState, long deadline) {
+        // A first complete plan, so that we always have something to return
+        State incumbent = greedyDive(initialState);
+        if (incumbent == null)
+            return null; // No feasible plan, same as aStarPlan
+        double lowerBound = initialState.getCostFunctionValue();
+
+        for (double weight = INITIAL_WEIGHT; ; weight = Math.max(1.0, weight - WEIGHT_STEP)) {
+            PriorityQueue<State> Q = new PriorityQueue<State>(new WeightedStateComparator(weight));
+            HashMap<State, Double> history = new HashMap<State, Double>();
+            boolean deadlineReached = false;
+            int expansions = 0;
+
+            Q.add(initialState);
+
+            while (!Q.isEmpty()) {
+                if (++expansions % EXPANSIONS_BETWEEN_DEADLINE_CHECKS == 0
+                        && (System.currentTimeMillis() >= deadline || Thread.currentThread().isInterrupted())) {
+                    deadlineReached = true;
+                    break;
+                }
+
+                State node = Q.remove();
+
+                // Nothing below this node can beat the best plan, no need to expand it
+                if (node.getCostFunctionValue() >= incumbent.getCostToReach())
+                    continue;
+
+                if (node.isFinal()) {
+                    incumbent = node;
+                    break;
+                }
+
+                if (!history.containsKey(node) || (node.getCostToReach() < history.getOrDefault(node, Double.MAX_VALUE))) {
+                    history.put(node, node.getCostToReach());
+                    for (State child : node.generateChildren()) {
+                        if (child.getCostFunctionValue() < incumbent.getCostToReach())
+                            Q.add(child);
+                    }
+                }
+            }
+
+            // Every plan cheaper than the incumbent goes through a node still in the open list, so the smallest
+            // (unweighted) f in it is a lower bound of the optimal cost. With an empty list the incumbent is optimal
+            lowerBound = Math.max(lowerBound, minCostFunctionValue(Q, incumbent.getCostToReach()));
+            boolean optimal = Q.isEmpty() || (weight == 1.0 && !deadlineReached);
+            if (optimal || deadlineReached || System.currentTimeMillis() >= deadline) {
+                double bound = optimal ? 1.0 : incumbent.getCostToReach() / Math.max(lowerBound, Double.MIN_VALUE);
+                return new Result(incumbent.getPDPlan(), incumbent.getCostToReach(), Math.max(1.0, bound));
+            }
+        }
+    }
+
+    // Follow the child with the lowest f until reaching a final state. Cheap and always finds a plan if one exists
+    static State greedyDive(State state) {
+        StateComparator comparator = new StateComparator();
+        while (!state.isFinal()) {
+            State best = null;
+            for (State child : state.generateChildren()) {
+                if (best == null || comparator.compare(child, best) < 0)
+                    best = child;
+            }
+            if (best == null)
+                return null;
+            state = best;
+        }
+        return state;
+    }
+
+    static double minCostFunctionValue(Iterable<State> Q, double upperBound) {
+        double min = upperBound;
+        for (State state : Q)
+            min = Math.min(min, state.getCostFunctionValue());
+        return min;
+    }
+}
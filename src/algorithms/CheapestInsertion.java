@@ -0,0 +1,126 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import centralized.PD_Action;
+import datastructures.TopologyIndex;
+import logist.simulation.Vehicle;
+import logist.task.Task;
+
+// Cheapest insertion of a new task in the current plan of a vehicle, without re-ordering the rest of the plan.
+// The plan is summarised once in prefix arrays (city, load and distance after each stop), so every (pickup position,
+// delivery position) pair is costed and checked against the capacity in O(1), O(n^2) for the whole search.
+public class CheapestInsertion {
+    private final Vehicle vehicle;
+    private final List<PD_Action> plan;
+    private final TopologyIndex topology;
+    private final int[] cities;                 // cities[k] = city after the k first actions, cities[0] = start city
+    private final int[] loads;                  // loads[k] = weight carried after the k first actions
+    private final double[] prefixDistances;     // prefixDistances[k] = km driven for the k first actions
+
+    // Where to insert the pickup and delivery actions: positions in the original plan, pickup before delivery
+    public class Insertion {
+        public final Task task;
+        public final int pickupPosition;
+        public final int deliveryPosition;
+        public final double marginalCost;
+
+        private Insertion(Task task, int pickupPosition, int deliveryPosition, double marginalCost) {
+            this.task = task;
+            this.pickupPosition = pickupPosition;
+            this.deliveryPosition = deliveryPosition;
+            this.marginalCost = marginalCost;
+        }
+
+        // The plan with the task inserted. The original plan is not modified
+        public List<PD_Action> apply() {
+            List<PD_Action> newPlan = new ArrayList<>(plan.size() + 2);
+            newPlan.addAll(plan);
+            newPlan.add(deliveryPosition, new PD_Action(false, task));
+            newPlan.add(pickupPosition, new PD_Action(true, task));
+            return newPlan;
+        }
+    }
+
+    public CheapestInsertion(Vehicle vehicle, List<PD_Action> plan) {
+        this.vehicle = vehicle;
+        this.plan = plan;
+        this.topology = TopologyIndex.of(vehicle.getCurrentCity());
+
+        int n = plan.size();
+        this.cities = new int[n + 1];
+        this.loads = new int[n + 1];
+        this.prefixDistances = new double[n + 1];
+
+        cities[0] = vehicle.getCurrentCity().id;
+        for (int k = 0; k < n; k++) {
+            PD_Action act = plan.get(k);
+            cities[k + 1] = (act.is_pickup ? act.task.pickupCity : act.task.deliveryCity).id;
+            loads[k + 1] = loads[k] + (act.is_pickup ? act.task.weight : -act.task.weight);
+            prefixDistances[k + 1] = prefixDistances[k] + topology.distance(cities[k], cities[k + 1]);
+        }
+    }
+
+    // Cost of the current plan
+    public double getCost() {
+        return prefixDistances[plan.size()] * vehicle.costPerKm();
+    }
+
+    // The cheapest feasible insertion of the task, null if the vehicle can never carry it
+    public Insertion bestInsertion(Task task) {
+        int[] positions = new int[2];
+        double delta = bestInsertion(topology, cities, loads, prefixDistances, plan.size(), task.pickupCity.id,
+                task.deliveryCity.id, vehicle.capacity() - task.weight, positions);
+        if (delta == Double.POSITIVE_INFINITY)
+            return null;
+        return new Insertion(task, positions[0], positions[1], delta * vehicle.costPerKm());
+    }
+
+    // The scan of bestInsertion over a plan of n actions summarised as in the fields, also used on the encoded plans of
+    // SLS and ALNS (centralized.PlanSummary). limit is the highest load the task can be picked up at (capacity -
+    // weight). Returns the km the cheapest feasible insertion adds, infinity if there is none, and leaves its pickup and
+    // delivery positions in the original plan in positions[0] and positions[1]
+    public static double bestInsertion(TopologyIndex topology, int[] cities, int[] loads, double[] prefixDistances, int n,
+                                       int pickup, int delivery, int limit, int[] positions) {
+        double pickupToDelivery = topology.distance(pickup, delivery);
+        double bestDelta = Double.POSITIVE_INFINITY;
+
+        // The pickup is inserted after the i first actions
+        for (int i = 0; i <= n; i++) {
+            if (loads[i] > limit)
+                continue;
+            double pickupDelta = detour(topology, cities, prefixDistances, n, i, pickup);
+
+            // Delivery right after the pickup
+            double delta = topology.distance(cities[i], pickup) + pickupToDelivery
+                    + (i < n ? topology.distance(delivery, cities[i + 1]) - (prefixDistances[i + 1] - prefixDistances[i]) : 0);
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                positions[0] = i;
+                positions[1] = i;
+            }
+
+            // Delivery after the j first actions, the task is carried during actions i+1..j
+            for (int j = i + 1; j <= n; j++) {
+                if (loads[j] > limit)
+                    break; // carried during action j, and during it for every later delivery position too
+                delta = pickupDelta + detour(topology, cities, prefixDistances, n, j, delivery);
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    positions[0] = i;
+                    positions[1] = j;
+                }
+            }
+        }
+        return bestDelta;
+    }
+
+    // Extra km to visit a city after the k first actions
+    private static double detour(TopologyIndex topology, int[] cities, double[] prefixDistances, int n, int k, int city) {
+        if (k == n)
+            return topology.distance(cities[k], city);
+        return topology.distance(cities[k], city) + topology.distance(city, cities[k + 1])
+                - (prefixDistances[k + 1] - prefixDistances[k]);
+    }
+}
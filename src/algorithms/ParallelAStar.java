@@ -0,0 +1,167 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import logist.simulation.Vehicle;
+import logist.task.Task;
+import template.State;
+
+// Hash-distributed A* (HDA*). Every state is owned by one worker thread, chosen from its hash, so each worker has its
+// own open list and history map and no locks are needed. A worker sends the children it generates to their owners
+// through lock-free inboxes. Goals found by a worker are only candidates: the search goes on, pruning nodes that
+// cannot beat the best goal, until no work is left anywhere, and then the best goal is optimal.
+public class ParallelAStar {
+    private static final int EXPANSIONS_BETWEEN_DEADLINE_CHECKS = 256;
+    private static final long IDLE_WAIT_NANOS = 20_000;
+    // Threads of the workers, reused by the searches. The workers of a search wait for each other, so they must all run
+    // at once: the pool grows with the searches running at the same time instead of queueing workers
+    private static final ExecutorService workerThreads = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "hda-star");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Worker[] workers;
+    private final long deadline;
+    private final AtomicReference<State> incumbent;    // best final state found so far
+    // States sent or queued but not processed yet. Children are counted before their parent is uncounted, so it only
+    // reaches 0 when the search is over
+    private final AtomicLong pendingStates = new AtomicLong();
+    private volatile boolean deadlineReached = false;
+
+    private ParallelAStar(int nr_threads, long deadline, State incumbent) {
+        this.workers = new Worker[nr_threads];
+        for (int i = 0; i < nr_threads; i++)
+            this.workers[i] = new Worker();
+        this.deadline = deadline;
+        this.incumbent = new AtomicReference<>(incumbent);
+    }
+
+    // Same contract as AStar.anytimeAStarPlan: the best plan found before the deadline, with its suboptimality bound
+    public static AStar.Result hdaStarPlan(Vehicle vehicle, List<Task> available, State initialState, int nr_threads, long deadline) {
+        // A first complete plan, so that we always have something to return and something to prune with
+        State greedy = AStar.greedyDive(initialState);
+        if (greedy == null)
+            return null; // No feasible plan, same as aStarPlan
+
+        ParallelAStar search = new ParallelAStar(Math.max(1, nr_threads), deadline, greedy);
+        search.send(initialState);
+        search.run();
+
+        State best = search.incumbent.get();
+        if (!search.deadlineReached)
+            return new AStar.Result(best.getPDPlan(), best.getCostToReach(), 1.0);
+
+        // Every plan cheaper than the best one goes through a state left in some open list or inbox of any worker (a
+        // worker stops only after sending the children of the state it expands): the lowest f of all of them is a lower
+        // bound, as is the f of the initial state
+        double lowestF = best.getCostToReach();
+        for (Worker worker : search.workers) {
+            lowestF = Math.min(lowestF, AStar.minCostFunctionValue(worker.open, best.getCostToReach()));
+            lowestF = Math.min(lowestF, AStar.minCostFunctionValue(worker.inbox, best.getCostToReach()));
+        }
+        double lowerBound = Math.max(initialState.getCostFunctionValue(), lowestF);
+        double bound = best.getCostToReach() / Math.max(lowerBound, Double.MIN_VALUE);
+        return new AStar.Result(best.getPDPlan(), best.getCostToReach(), Math.max(1.0, bound));
+    }
+
+    // Run the workers and wait for all of them, the open lists are read afterwards
+    private void run() {
+        List<Future<?>> running = new ArrayList<>();
+        for (Worker worker : workers)
+            running.add(workerThreads.submit(worker));
+        boolean interrupted = false;
+        for (Future<?> worker : running) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    deadlineReached = true; // stop the workers, still waiting for them
+                } catch (ExecutionException e) {
+                    deadlineReached = true;
+                    throw new IllegalStateException("HDA* worker failed", e.getCause());
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void send(State state) {
+        pendingStates.incrementAndGet();
+        workers[owner(state)].inbox.add(state);
+    }
+
+    private int owner(State state) {
+        int h = state.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h * 0x9E3779B1, workers.length);
+    }
+
+    // Record a final state if it is better than the best one
+    private void offerGoal(State goal) {
+        State best = incumbent.get();
+        while (goal.getCostToReach() < best.getCostToReach() && !incumbent.compareAndSet(best, goal))
+            best = incumbent.get();
+    }
+
+    private class Worker implements Runnable {
+        private final PriorityQueue<State> open = new PriorityQueue<State>(new AStar.StateComparator());
+        private final HashMap<State, Double> history = new HashMap<State, Double>();
+        private final ConcurrentLinkedQueue<State> inbox = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void run() {
+            int expansions = 0;
+            while (pendingStates.get() > 0 && !deadlineReached) {
+                // Receive the states other workers generated for us
+                State received;
+                while ((received = inbox.poll()) != null)
+                    open.add(received);
+
+                if (open.isEmpty()) {
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                }
+                else {
+                    expand(open.remove());
+                }
+
+                if (++expansions % EXPANSIONS_BETWEEN_DEADLINE_CHECKS == 0 && System.currentTimeMillis() >= deadline)
+                    deadlineReached = true;
+            }
+        }
+
+        private void expand(State node) {
+            double bestCost = incumbent.get().getCostToReach();
+
+            if (node.getCostFunctionValue() < bestCost) {
+                if (node.isFinal()) {
+                    offerGoal(node);
+                }
+                else if (!history.containsKey(node) || (node.getCostToReach() < history.getOrDefault(node, Double.MAX_VALUE))) {
+                    history.put(node, node.getCostToReach());
+                    for (State child : node.generateChildren()) {
+                        if (child.getCostFunctionValue() < bestCost)
+                            send(child);
+                    }
+                }
+            }
+
+            // Done with this state, after its children were counted
+            pendingStates.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import centralized.Candidate;
+import centralized.PD_Action;
+import logist.simulation.Vehicle;
+import logist.task.Task;
+
+// Construction heuristic for the initial solution of SLS: tasks are inserted one by one at their cheapest feasible place
+// (CheapestInsertion) over all vehicles. With k = 1 the next task is the one that is cheapest to insert (cheapest
+// insertion), with k >= 2 the one that would cost the most to postpone, the sum of the differences between its best
+// insertion and its next k - 1 best ones on other vehicles (k-regret insertion). Tasks that fit in fewer vehicles go
+// first. Only the insertions on the vehicle that got the task are costed again after each step. The choice of the next
+// task (Choice) is also the repair of centralized.ALNS.
+public class RegretInsertion {
+    private final List<Vehicle> vehicles;
+    private final List<Task> tasks;
+    private final int k;
+    private final List<List<PD_Action>> plans = new ArrayList<>();
+    private final List<List<Task>> taskLists = new ArrayList<>();
+    private final CheapestInsertion.Insertion[][] insertions; // insertions[t][v] = best insertion of task t in vehicle v
+    private final double[][] costs; // their costs, infinity where there is none
+    private final boolean[] inserted;
+
+    // The next task to insert among the ones offered, from the costs of their insertions in every vehicle (infinity
+    // where they do not fit): the one with the fewest of its k cheapest insertions possible, then the largest k-regret
+    // (the lowest cost if k = 1), then the lowest cost, the first one offered on ties. Reused for every step
+    public static class Choice {
+        private final int k;
+        private final double[] cheapest; // k cheapest costs of the task offered, in increasing order
+        private int task, vehicle, missing;
+        private double regret, cost;
+
+        public Choice(int k, int nrVehicles) {
+            this.k = Math.max(1, Math.min(k, nrVehicles));
+            this.cheapest = new double[this.k];
+            reset();
+        }
+
+        public void reset() {
+            task = -1;
+            vehicle = -1;
+        }
+
+        // Offer task t, with costs[v] the cost of its insertion in vehicle v. Returns false if it fits in no vehicle
+        public boolean offer(int t, double[] costs) {
+            Arrays.fill(cheapest, Double.POSITIVE_INFINITY);
+            int cheapestVehicle = -1;
+            for (int v = 0; v < costs.length; v++) {
+                double c = costs[v];
+                if (c == Double.POSITIVE_INFINITY)
+                    continue;
+                if (cheapestVehicle < 0 || c < costs[cheapestVehicle])
+                    cheapestVehicle = v;
+                for (int h = 0; h < k; h++) {
+                    if (c < cheapest[h]) {
+                        System.arraycopy(cheapest, h, cheapest, h + 1, k - h - 1);
+                        cheapest[h] = c;
+                        break;
+                    }
+                }
+            }
+            if (cheapestVehicle < 0)
+                return false;
+
+            int tMissing = 0;
+            double tRegret = k == 1 ? -cheapest[0] : 0;
+            for (int h = 1; h < k; h++) {
+                if (cheapest[h] == Double.POSITIVE_INFINITY)
+                    tMissing++;
+                else
+                    tRegret += cheapest[h] - cheapest[0];
+            }
+            if (task < 0 || tMissing > missing || (tMissing == missing
+                    && (tRegret > regret || (tRegret == regret && cheapest[0] < cost)))) {
+                task = t;
+                vehicle = cheapestVehicle;
+                missing = tMissing;
+                regret = tRegret;
+                cost = cheapest[0];
+            }
+            return true;
+        }
+
+        // The task chosen, -1 if none was offered, and the vehicle of its cheapest insertion
+        public int task() {
+            return task;
+        }
+
+        public int vehicle() {
+            return vehicle;
+        }
+    }
+
+    private RegretInsertion(List<Vehicle> vehicles, List<Task> tasks, int k) {
+        this.vehicles = vehicles;
+        this.tasks = tasks;
+        this.k = Math.max(1, Math.min(k, vehicles.size()));
+        this.insertions = new CheapestInsertion.Insertion[tasks.size()][vehicles.size()];
+        this.costs = new double[tasks.size()][vehicles.size()];
+        this.inserted = new boolean[tasks.size()];
+        for (int v = 0; v < vehicles.size(); v++) {
+            plans.add(new ArrayList<>());
+            taskLists.add(new ArrayList<>());
+        }
+    }
+
+    // Solution with all the tasks, built by k-regret insertion (k = 1 for cheapest insertion)
+    public static Candidate initialSolution(List<Vehicle> vehicles, List<Task> tasks, int k) {
+        return new RegretInsertion(vehicles, tasks, k).build();
+    }
+
+    private Candidate build() {
+        for (int v = 0; v < vehicles.size(); v++)
+            costInsertions(v);
+
+        Choice choice = new Choice(k, vehicles.size());
+        for (int step = 0; step < tasks.size(); step++) {
+            choice.reset();
+            for (int t = 0; t < tasks.size(); t++) {
+                if (!inserted[t] && !choice.offer(t, costs[t]))
+                    throw new IllegalArgumentException("No vehicle can carry task " + tasks.get(t));
+            }
+
+            int bestTask = choice.task();
+            int bestVehicle = choice.vehicle();
+            plans.set(bestVehicle, insertions[bestTask][bestVehicle].apply());
+            taskLists.get(bestVehicle).add(tasks.get(bestTask));
+            inserted[bestTask] = true;
+            costInsertions(bestVehicle);
+        }
+
+        double cost = 0;
+        for (int v = 0; v < vehicles.size(); v++)
+            cost += Candidate.ComputeCost(vehicles.get(v), plans.get(v));
+        return new Candidate(vehicles, plans, taskLists, cost);
+    }
+
+    // Best insertion of every task left in the current plan of the vehicle
+    private void costInsertions(int v) {
+        CheapestInsertion engine = new CheapestInsertion(vehicles.get(v), plans.get(v));
+        for (int t = 0; t < tasks.size(); t++) {
+            if (!inserted[t]) {
+                insertions[t][v] = engine.bestInsertion(tasks.get(t));
+                costs[t][v] = insertions[t][v] == null ? Double.POSITIVE_INFINITY : insertions[t][v].marginalCost;
+            }
+        }
+    }
+}
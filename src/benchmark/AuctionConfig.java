@@ -0,0 +1,157 @@
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import logist.LogistSettings;
+import logist.config.Parsers;
+import logist.task.DefaultTaskDistribution;
+import logist.task.Policy;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+// The parts of an auction configuration (config/auction.xml) a headless auction needs: the settings, the task
+// distribution and the companies. The task distribution is built as the logist ConfigParser does, for any topology, so
+// the same configuration can be played on all of config/topology
+public class AuctionConfig {
+    public final LogistSettings settings;
+    public final int nrTasks;
+    public final long seed;
+    private final Element probability;
+    private final Element reward;
+    private final Element weight;
+    private final Element noTask; // null if the configuration has none
+    private final List<List<VehicleSpec>> companies = new ArrayList<>();
+
+    // A vehicle of a company as configured, its home city is looked up in the topology of the match
+    private static class VehicleSpec {
+        final String name;
+        final String home;
+        final int capacity;
+        final int costPerKm;
+
+        VehicleSpec(String name, String home, int capacity, int costPerKm) {
+            this.name = name;
+            this.home = home;
+            this.capacity = capacity;
+            this.costPerKm = costPerKm;
+        }
+    }
+
+    public AuctionConfig(String configFile) {
+        try {
+            Element configuration = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new File(configFile)).getDocumentElement();
+            this.settings = Parsers.parseSettings(child(configuration, "settings").getAttribute("import"));
+
+            Element tasks = child(configuration, "tasks");
+            this.nrTasks = Integer.parseInt(tasks.getAttribute("number"));
+            this.seed = Long.parseLong(tasks.getAttribute("rngSeed"));
+            this.probability = child(tasks, "probability");
+            this.reward = child(tasks, "reward");
+            this.weight = child(tasks, "weight");
+            this.noTask = tasks.getElementsByTagName("no-task").getLength() > 0 ? child(tasks, "no-task") : null;
+
+            NodeList companyTags = child(configuration, "companies").getElementsByTagName("company");
+            for (int i = 0; i < companyTags.getLength(); i++) {
+                List<VehicleSpec> vehicles = new ArrayList<>();
+                NodeList vehicleTags = ((Element) companyTags.item(i)).getElementsByTagName("vehicle");
+                for (int j = 0; j < vehicleTags.getLength(); j++) {
+                    Element vehicle = (Element) vehicleTags.item(j);
+                    vehicles.add(new VehicleSpec(vehicle.getAttribute("name"), set(vehicle, "home"),
+                            Integer.parseInt(set(vehicle, "capacity")), Integer.parseInt(set(vehicle, "cost-per-km"))));
+                }
+                companies.add(vehicles);
+            }
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot load auction configuration " + configFile, e);
+        }
+    }
+
+    public int nrCompanies() {
+        return companies.size();
+    }
+
+    // Task distribution of the configuration on the topology. Its random generator, seeded with seed, also draws the
+    // tasks (createTaskSet): the configured rngSeed on the configured topology gives the tasks of the platform
+    public DefaultTaskDistribution distribution(Topology topology, long seed) {
+        Random random = new Random(seed);
+        double[][] p = policy(topology, probability, random);
+        double[][] r = policy(topology, reward, random);
+        double[][] w = policy(topology, weight, random);
+        double[] n = noTask == null ? new double[topology.size()] : distribution(topology.size(), noTask, random);
+        return new DefaultTaskDistribution(topology, random, p, r, w, n);
+    }
+
+    // Vehicles of a company, with the ids the platform gives them. Home cities that are not in the topology (the
+    // configuration is written for one of them) are drawn from random
+    public List<BenchmarkVehicle> vehicles(int company, Topology topology, Random random) {
+        List<BenchmarkVehicle> vehicles = new ArrayList<>();
+        for (VehicleSpec spec : companies.get(company)) {
+            City home;
+            try {
+                home = topology.parseCity(spec.home);
+            } catch (IllegalArgumentException e) {
+                home = topology.randomCity(random);
+            }
+            vehicles.add(new BenchmarkVehicle(vehicles.size(), spec.name, home, spec.capacity, spec.costPerKm));
+        }
+        return vehicles;
+    }
+
+    private static double[][] policy(Topology topology, Element tag, Random random) {
+        Policy policy;
+        switch (tag.hasAttribute("policy") ? tag.getAttribute("policy") : "none") {
+            case "long-distances": policy = new Policy.LongDistances(topology); break;
+            case "medium-distances": policy = new Policy.MediumDistances(topology); break;
+            case "short-distances": policy = new Policy.ShortDistances(topology); break;
+            case "none": policy = new Policy.Uniform(topology); break;
+            default: throw new IllegalArgumentException("Unknown policy in " + tag.getTagName());
+        }
+        double[] range = range(tag);
+        if (tag.getAttribute("distribution").equals("constant"))
+            return policy.constant(range[0], range[1]);
+        return policy.uniform(range[0], range[1], random);
+    }
+
+    private static double[] distribution(int nrCities, Element tag, Random random) {
+        double[] range = range(tag);
+        if (tag.getAttribute("distribution").equals("constant"))
+            return Policy.constant(nrCities, (range[0] + range[1]) / 2.0);
+        return Policy.uniform(nrCities, range[0], range[1], random);
+    }
+
+    // min and max of a distribution, both equal to value if it is given
+    private static double[] range(Element tag) {
+        if (tag.hasAttribute("value")) {
+            double value = Double.parseDouble(tag.getAttribute("value"));
+            return new double[]{value, value};
+        }
+        return new double[]{Double.parseDouble(tag.getAttribute("min")), Double.parseDouble(tag.getAttribute("max"))};
+    }
+
+    private static Element child(Element parent, String name) {
+        NodeList children = parent.getElementsByTagName(name);
+        if (children.getLength() == 0)
+            throw new IllegalArgumentException("Missing <" + name + "> in <" + parent.getTagName() + ">");
+        return (Element) children.item(0);
+    }
+
+    // Value of <set key="value"/> in a vehicle
+    private static String set(Element vehicle, String key) {
+        NodeList sets = vehicle.getElementsByTagName("set");
+        for (int i = 0; i < sets.getLength(); i++) {
+            Element set = (Element) sets.item(i);
+            if (set.hasAttribute(key))
+                return set.getAttribute(key);
+        }
+        throw new IllegalArgumentException("Missing " + key + " in vehicle " + vehicle.getAttribute("name"));
+    }
+}
@@ -0,0 +1,209 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import logist.LogistSettings;
+import logist.behavior.AuctionBehavior;
+import logist.plan.Plan;
+import logist.task.Task;
+import logist.task.TaskDistribution;
+import logist.task.TaskSet;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+import template.AuctionTrace;
+
+// Replays an auction recorded by template.AuctionTrace against an agent, at full speed (no waiting for the other
+// agents): setup gets the recorded topology, task distribution and vehicles, askPrice the recorded tasks, auctionResult
+// the recorded results and plan the tasks won. The agent sees the same auction as the recorded one whatever it bids, so
+// two versions of an agent can be compared call by call. Reported per call and overall: the bid and time of the
+// recording and of the replay, the tasks the new bid would have won or lost against the recorded bids of the others,
+// and the cost and time of the plans.
+//
+// Usage: java benchmark.AuctionReplay trace=file [agent=template.AuctionTemplate] [bid=ms] [plan=ms]
+//                                     [topology=name] [calls=true] [log=false]
+// bid and plan override the recorded timeouts. The topology is the one of config/topology with the recorded cities,
+// unless given.
+public class AuctionReplay {
+
+    public static void main(String[] args) throws IOException, ReflectiveOperationException {
+        HashMap<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2)
+                throw new IllegalArgumentException("Arguments are key=value, got " + arg);
+            options.put(keyValue[0], keyValue[1]);
+        }
+        if (!options.containsKey("trace"))
+            throw new IllegalArgumentException("Usage: java benchmark.AuctionReplay trace=file [agent=class] [bid=ms] [plan=ms]");
+        boolean calls = Boolean.parseBoolean(options.getOrDefault("calls", "true"));
+
+        try (AuctionTraceReader trace = new AuctionTraceReader(options.get("trace"))) {
+            Topology topology = options.containsKey("topology")
+                    ? BenchmarkScenario.loadTopology("config" + File.separator + "topology" + File.separator + options.get("topology") + ".xml")
+                    : findTopology(trace.cities);
+            List<City> cities = topology.cities();
+            LogistSettings settings = new LogistSettings();
+            settings.set(LogistSettings.TimeoutKey.SETUP, trace.timeoutSetup);
+            settings.set(LogistSettings.TimeoutKey.BID, Long.parseLong(options.getOrDefault("bid", String.valueOf(trace.timeoutBid))));
+            settings.set(LogistSettings.TimeoutKey.PLAN, Long.parseLong(options.getOrDefault("plan", String.valueOf(trace.timeoutPlan))));
+
+            List<BenchmarkVehicle> vehicles = new ArrayList<>();
+            for (AuctionTraceReader.VehicleRecord vehicle : trace.vehicles)
+                vehicles.add(new BenchmarkVehicle(vehicle.id, vehicle.name, cities.get(vehicle.homeCity), vehicle.capacity, vehicle.costPerKm));
+            TournamentAgent agent = new TournamentAgent(trace.agentId, "replay", vehicles);
+
+            // The agent prints its bids and plans, only the comparison is shown unless log is set
+            PrintStream out = System.out;
+            if (!Boolean.parseBoolean(options.getOrDefault("log", "false")))
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                AuctionBehavior behavior = AuctionTournament.newBehavior(
+                        options.getOrDefault("agent", "template.AuctionTemplate"), settings);
+                replay(trace, behavior, topology, distribution(trace, topology), agent, out, calls);
+            } finally {
+                System.setOut(out);
+            }
+        }
+    }
+
+    private static void replay(AuctionTraceReader trace, AuctionBehavior behavior, Topology topology,
+                               TaskDistribution distribution, TournamentAgent agent, PrintStream out, boolean calls)
+            throws IOException {
+        List<City> cities = topology.cities();
+        long start = System.nanoTime();
+        behavior.setup(topology, distribution, agent);
+        out.printf("setup: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        if (calls)
+            out.printf("%-6s %-30s %12s %12s %12s %12s %8s%n", "task", "", "bid", "replay bid", "ms", "replay ms", "outcome");
+
+        HashMap<Integer, Task> announced = new HashMap<>();
+        HashMap<Integer, Long> replayBids = new HashMap<>();
+        List<Task> results = new ArrayList<>(); // tasks as given to auctionResult, in id order
+        List<Task> won = new ArrayList<>();
+        int asks = 0, changedBids = 0, gained = 0, lost = 0;
+        double recordedMillis = 0, replayMillis = 0, maxRecordedMillis = 0, maxReplayMillis = 0, bidDifference = 0;
+
+        AuctionTraceReader.Record record;
+        while ((record = trace.next()) != null) {
+            switch (record.type) {
+                case AuctionTrace.ASK: {
+                    Task task = new Task(record.taskId, cities.get(record.pickupCity), cities.get(record.deliveryCity),
+                            record.reward, record.weight);
+                    announced.put(task.id, task);
+                    start = System.nanoTime();
+                    Long bid = behavior.askPrice(task);
+                    double millis = (System.nanoTime() - start) / 1e6;
+                    replayBids.put(task.id, bid);
+
+                    asks++;
+                    recordedMillis += record.nanos / 1e6;
+                    replayMillis += millis;
+                    maxRecordedMillis = Math.max(maxRecordedMillis, record.nanos / 1e6);
+                    maxReplayMillis = Math.max(maxReplayMillis, millis);
+                    if (bid == null ? record.bid != null : !bid.equals(record.bid))
+                        changedBids++;
+                    if (bid != null && record.bid != null)
+                        bidDifference += bid - record.bid;
+                    if (calls)
+                        out.printf("%-6d %-30s %12s %12s %12.1f %12.1f", task.id, task.pickupCity + " -> " + task.deliveryCity,
+                                record.bid, bid, record.nanos / 1e6, millis);
+                    break;
+                }
+                case AuctionTrace.RESULT: {
+                    Task asked = announced.get(record.taskId);
+                    Task task = new Task(record.taskId, asked.pickupCity, asked.deliveryCity, record.reward, asked.weight);
+                    results.add(task);
+
+                    // would the replay bid have changed who wins, against the recorded bids of the others
+                    Long[] bids = record.bids.clone();
+                    bids[trace.agentId] = replayBids.get(task.id);
+                    boolean wonBefore = record.winner == trace.agentId;
+                    boolean wonNow = winner(bids) == trace.agentId;
+                    gained += !wonBefore && wonNow ? 1 : 0;
+                    lost += wonBefore && !wonNow ? 1 : 0;
+                    if (calls)
+                        out.printf(" %8s%n", wonBefore == wonNow ? (wonNow ? "won" : "lost") : (wonNow ? "gained" : "LOST"));
+
+                    // the agent gets the recorded result, whatever it bid
+                    behavior.auctionResult(task, record.winner, record.bids);
+                    if (wonBefore)
+                        won.add(task);
+                    break;
+                }
+                case AuctionTrace.PLAN: {
+                    TaskSet tasks = TaskSet.noneOf(TaskSet.create(results.toArray(new Task[0])));
+                    tasks.addAll(won);
+                    agent.setTasks(tasks);
+                    start = System.nanoTime();
+                    List<Plan> plans = behavior.plan(agent.vehicles(), tasks);
+                    double millis = (System.nanoTime() - start) / 1e6;
+                    double cost = AuctionTrace.cost(agent.vehicles(), plans);
+                    boolean valid = AuctionTournament.deliversAll(agent.vehicles(), plans, tasks);
+                    out.printf("%nplan of %d tasks: cost %.0f, replay %.0f (%+.1f%%)%s, %.1f ms, replay %.1f ms%n",
+                            record.nrTasks, record.cost, cost, record.cost == 0 ? 0 : 100 * (cost - record.cost) / record.cost,
+                            valid ? "" : " INVALID", record.nanos / 1e6, millis);
+                    break;
+                }
+            }
+        }
+
+        if (asks > 0) {
+            out.printf("askPrice: %d calls, %.1f ms on average (max %.1f), replay %.1f ms (max %.1f)%n", asks,
+                    recordedMillis / asks, maxRecordedMillis, replayMillis / asks, maxReplayMillis);
+            out.printf("bids: %d changed, %+.1f on average, %d tasks gained and %d lost against the recorded bids%n",
+                    changedBids, bidDifference / asks, gained, lost);
+        }
+    }
+
+    // Winner of an auction as the platform decides it: the lowest bid, the first agent on ties, -1 if nobody bid
+    private static int winner(Long[] bids) {
+        int winner = -1;
+        for (int i = 0; i < bids.length; i++) {
+            if (bids[i] != null && (winner == -1 || bids[i] < bids[winner]))
+                winner = i;
+        }
+        return winner;
+    }
+
+    // Task distribution with the recorded probabilities, rewards and weights
+    private static TaskDistribution distribution(AuctionTraceReader trace, Topology topology) {
+        return new TaskDistribution() {
+            @Override
+            public double probability(City from, City to) {
+                return to == null ? trace.noTaskProbabilities[from.id] : trace.probabilities[from.id][to.id];
+            }
+
+            @Override
+            public int reward(City from, City to) {
+                return to == null ? 0 : trace.rewards[from.id][to.id];
+            }
+
+            @Override
+            public int weight(City from, City to) {
+                return to == null ? 0 : trace.weights[from.id][to.id];
+            }
+        };
+    }
+
+    // The topology of config/topology with the recorded cities, in the same order
+    private static Topology findTopology(List<String> cities) {
+        File[] files = new File("config" + File.separator + "topology").listFiles((dir, name) -> name.endsWith(".xml"));
+        if (files != null) {
+            for (File file : files) {
+                Topology topology = BenchmarkScenario.loadTopology(file.getPath());
+                List<String> names = new ArrayList<>();
+                for (City city : topology.cities())
+                    names.add(city.name);
+                if (names.equals(cities))
+                    return topology;
+            }
+        }
+        throw new IllegalArgumentException("No topology in config/topology has the cities of the trace, give it with topology=");
+    }
+}
@@ -0,0 +1,358 @@
+package benchmark;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import datastructures.TopologyIndex;
+import logist.LogistSettings;
+import logist.behavior.AuctionBehavior;
+import logist.plan.Action;
+import logist.plan.ActionHandler;
+import logist.plan.Plan;
+import logist.simulation.Vehicle;
+import logist.task.DefaultTaskDistribution;
+import logist.task.Task;
+import logist.task.TaskSet;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+// Headless auction tournament: the agent variants (AuctionBehavior classes) play each other on the topologies of
+// config/topology, the matches running in parallel. A match follows the protocol of the logist platform: the tasks are
+// drawn from the task distribution of the auction configuration, every agent bids on each task, the lowest bid wins it
+// (the first agent on ties) and is paid its bid, then every agent gets the result and at the end plans its tasks.
+// Every pair of variants plays both seats, with the same tasks, and a single variant plays itself.
+// Reported per variant: profit (bids won - cost of the plans), matches won, bid latency and plan cost.
+// Agents are created with a constructor taking the settings (see template.AuctionTemplate), or without arguments.
+//
+// Usage: java benchmark.AuctionTournament [agents=template.AuctionTemplate] [topologies=england,france,...]
+//                                         [config=config/auction.xml] [rounds=2] [tasks=20] [bid=2000] [plan=10000]
+//                                         [search=1] [threads=cores/search] [log=false] [traces=directory]
+// tasks, bid and plan (timeouts in ms) override the configuration, rounds are played with seeds rngSeed, rngSeed + 1...
+// search is the number of search threads of every agent (its threads property, all the cores on the platform) and
+// threads the number of matches played at the same time. The agents of a match bid one after the other, so a match
+// needs search cores and by default the matches fill the cores. With more, the matches share the cores: the searches
+// get less done before their deadlines, which lowers the profit and raises the bid latency and the late bids.
+// Searches with more threads find other plans (HDA* from 8 threads), only compare results played with the same search.
+// With traces, every agent records its auction there (see template.AuctionTrace and AuctionReplay).
+public class AuctionTournament {
+    private final AuctionConfig config;
+    private final LogistSettings settings;
+    private final int nrTasks;
+    private final int searchThreads; // of every agent
+    private final String traces; // directory to record the auction of every agent in, null not to record them
+
+    // One match: two variants on a topology with the tasks of a seed
+    private static class Match {
+        final String topologyName;
+        final Topology topology;
+        final long seed;
+        final String[] variants;
+
+        Match(String topologyName, Topology topology, long seed, String[] variants) {
+            this.topologyName = topologyName;
+            this.topology = topology;
+            this.seed = seed;
+            this.variants = variants;
+        }
+
+        @Override
+        public String toString() {
+            return topologyName + " seed " + seed + ": " + String.join(" vs ", variants);
+        }
+    }
+
+    // What an agent did in a match
+    private static class Result {
+        final String variant;
+        int tasks = 0;
+        long reward = 0;
+        double cost = 0;
+        int bids = 0;
+        double bidMillis = 0;
+        double maxBidMillis = 0;
+        int lateBids = 0; // over the bid timeout
+        double planMillis = 0;
+        boolean validPlans = true;
+
+        Result(String variant) {
+            this.variant = variant;
+        }
+
+        double profit() {
+            return reward - cost;
+        }
+    }
+
+    // Results of a variant over all its matches
+    private static class Summary {
+        int matches = 0;
+        int wins = 0;
+        int tasks = 0;
+        double profit = 0;
+        double cost = 0;
+        int bids = 0;
+        double bidMillis = 0;
+        double maxBidMillis = 0;
+        int lateBids = 0;
+        double maxPlanMillis = 0;
+        int invalidPlans = 0;
+
+        void add(Result result, boolean won) {
+            matches++;
+            wins += won ? 1 : 0;
+            tasks += result.tasks;
+            profit += result.profit();
+            cost += result.cost;
+            bids += result.bids;
+            bidMillis += result.bidMillis;
+            maxBidMillis = Math.max(maxBidMillis, result.maxBidMillis);
+            lateBids += result.lateBids;
+            maxPlanMillis = Math.max(maxPlanMillis, result.planMillis);
+            invalidPlans += result.validPlans ? 0 : 1;
+        }
+    }
+
+    private AuctionTournament(AuctionConfig config, int nrTasks, long bidTimeout, long planTimeout, int searchThreads,
+                              String traces) {
+        this.config = config;
+        this.nrTasks = nrTasks;
+        this.searchThreads = searchThreads;
+        this.traces = traces;
+        this.settings = config.settings;
+        settings.set(LogistSettings.TimeoutKey.BID, bidTimeout);
+        settings.set(LogistSettings.TimeoutKey.PLAN, planTimeout);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        HashMap<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2)
+                throw new IllegalArgumentException("Arguments are key=value, got " + arg);
+            options.put(keyValue[0], keyValue[1]);
+        }
+
+        List<String> variants = Arrays.asList(options.getOrDefault("agents", "template.AuctionTemplate").split(","));
+        List<String> topologies = Arrays.asList(options.getOrDefault("topologies", "england,france,switzerland,the_netherlands").split(","));
+        AuctionConfig config = new AuctionConfig(options.getOrDefault("config", "config" + File.separator + "auction.xml"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "2"));
+        int cores = Runtime.getRuntime().availableProcessors();
+        int search = Integer.parseInt(options.getOrDefault("search", "1"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Math.max(1, cores / search))));
+        if (threads * search > cores)
+            System.out.println("Warning: " + threads + " matches with " + search + " search threads each share "
+                    + cores + " cores, the profit, bid latency and late bids are not those of a match alone");
+        boolean log = Boolean.parseBoolean(options.getOrDefault("log", "false"));
+        AuctionTournament tournament = new AuctionTournament(config,
+                Integer.parseInt(options.getOrDefault("tasks", String.valueOf(config.nrTasks))),
+                Long.parseLong(options.getOrDefault("bid", "2000")),
+                Long.parseLong(options.getOrDefault("plan", "10000")),
+                search, options.get("traces"));
+
+        List<Match> matches = new ArrayList<>();
+        for (String name : topologies) {
+            Topology topology = BenchmarkScenario.loadTopology("config" + File.separator + "topology" + File.separator + name + ".xml");
+            TopologyIndex.of(topology);
+            for (int round = 0; round < rounds; round++) {
+                long seed = config.seed + round;
+                if (variants.size() == 1)
+                    matches.add(new Match(name, topology, seed, new String[]{variants.get(0), variants.get(0)}));
+                for (String first : variants) {
+                    for (String second : variants) {
+                        if (!first.equals(second))
+                            matches.add(new Match(name, topology, seed, new String[]{first, second}));
+                    }
+                }
+            }
+        }
+
+        // The agents print their bids and plans, only the results are shown unless log is set
+        PrintStream out = System.out;
+        if (!log)
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result[]>> futures = new ArrayList<>();
+        for (Match match : matches)
+            futures.add(pool.submit(() -> tournament.play(match)));
+
+        LinkedHashMap<String, Summary> summaries = new LinkedHashMap<>();
+        for (String variant : variants)
+            summaries.put(variant, new Summary());
+        out.printf("%-50s %12s %12s%n", "match", "profit", "profit");
+        try {
+            for (int i = 0; i < matches.size(); i++) {
+                Result[] results;
+                try {
+                    results = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Match " + matches.get(i) + " failed", e.getCause());
+                }
+                out.printf("%-50s %12.0f %12.0f%n", matches.get(i), results[0].profit(), results[1].profit());
+                for (int seat = 0; seat < results.length; seat++) {
+                    boolean won = results[seat].profit() > results[1 - seat].profit();
+                    summaries.get(results[seat].variant).add(results[seat], won);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            System.setOut(out);
+        }
+
+        System.out.printf("%n%-30s %8s %6s %10s %8s %10s %10s %10s %6s %10s %8s%n", "variant", "matches", "wins",
+                "profit", "tasks", "plan cost", "bid ms", "max bid ms", "late", "max plan", "invalid");
+        for (String variant : summaries.keySet()) {
+            Summary summary = summaries.get(variant);
+            System.out.printf("%-30s %8d %6d %10.0f %8.1f %10.0f %10.1f %10.1f %6d %10.0f %8d%n", variant,
+                    summary.matches, summary.wins, summary.profit / summary.matches,
+                    (double) summary.tasks / summary.matches, summary.cost / summary.matches,
+                    summary.bidMillis / Math.max(1, summary.bids), summary.maxBidMillis, summary.lateBids,
+                    summary.maxPlanMillis, summary.invalidPlans);
+        }
+    }
+
+    private Result[] play(Match match) throws ReflectiveOperationException {
+        DefaultTaskDistribution distribution = config.distribution(match.topology, match.seed);
+        Random homes = new Random(match.seed);
+        int nrAgents = match.variants.length;
+        TournamentAgent[] agents = new TournamentAgent[nrAgents];
+        AuctionBehavior[] behaviors = new AuctionBehavior[nrAgents];
+        Result[] results = new Result[nrAgents];
+        for (int i = 0; i < nrAgents; i++) {
+            agents[i] = new TournamentAgent(i, match.variants[i], config.vehicles(i % config.nrCompanies(), match.topology, homes));
+            agents[i].setProperty("threads", searchThreads);
+            if (traces != null)
+                agents[i].setProperty("trace", traces + File.separator + match.topologyName + "-" + match.seed + "-"
+                        + i + "-" + match.variants[i] + ".trace");
+            behaviors[i] = newBehavior(match.variants[i], settings);
+            behaviors[i].setup(match.topology, distribution, agents[i]);
+            results[i] = new Result(match.variants[i]);
+        }
+
+        // Auction: the winning task is replaced by one with the bid as reward, as the platform does
+        Task[] tasks = new Task[nrTasks];
+        distribution.createTaskSet(tasks);
+        List<List<Task>> won = new ArrayList<>();
+        for (int i = 0; i < nrAgents; i++)
+            won.add(new ArrayList<>());
+        long bidTimeout = settings.get(LogistSettings.TimeoutKey.BID);
+        for (Task task : tasks) {
+            Long[] bids = new Long[nrAgents];
+            int winner = -1;
+            for (int i = 0; i < nrAgents; i++) {
+                long start = System.nanoTime();
+                bids[i] = behaviors[i].askPrice(task);
+                double millis = (System.nanoTime() - start) / 1e6;
+                results[i].bids++;
+                results[i].bidMillis += millis;
+                results[i].maxBidMillis = Math.max(results[i].maxBidMillis, millis);
+                results[i].lateBids += millis > bidTimeout ? 1 : 0;
+                if (bids[i] != null && (winner == -1 || bids[i] < bids[winner]))
+                    winner = i;
+            }
+            if (winner >= 0) {
+                task = new Task(task.id, task.pickupCity, task.deliveryCity, bids[winner], task.weight);
+                tasks[task.id] = task;
+                won.get(winner).add(task);
+                results[winner].tasks++;
+                results[winner].reward += bids[winner];
+            }
+            for (AuctionBehavior behavior : behaviors)
+                behavior.auctionResult(task, winner, bids);
+        }
+
+        TaskSet universe = TaskSet.create(tasks);
+        for (int i = 0; i < nrAgents; i++) {
+            TaskSet agentTasks = TaskSet.noneOf(universe);
+            agentTasks.addAll(won.get(i));
+            agents[i].setTasks(agentTasks);
+            long start = System.nanoTime();
+            List<Plan> plans = behaviors[i].plan(agents[i].vehicles(), agentTasks);
+            results[i].planMillis = (System.nanoTime() - start) / 1e6;
+            results[i].validPlans = deliversAll(agents[i].vehicles(), plans, agentTasks);
+            for (int v = 0; v < plans.size() && v < agents[i].vehicles().size(); v++)
+                results[i].cost += plans.get(v).totalDistance() * agents[i].vehicles().get(v).costPerKm();
+        }
+        return results;
+    }
+
+    // Agent of the variant, created with the settings if it has a constructor taking them
+    static AuctionBehavior newBehavior(String variant, LogistSettings settings) throws ReflectiveOperationException {
+        Class<? extends AuctionBehavior> behavior = Class.forName(variant).asSubclass(AuctionBehavior.class);
+        try {
+            return behavior.getConstructor(LogistSettings.class).newInstance(settings);
+        } catch (NoSuchMethodException e) {
+            return behavior.getConstructor().newInstance();
+        }
+    }
+
+    // One plan per vehicle, moving along roads from its city, within its capacity, picking up and delivering every task
+    // once and only the tasks given
+    static boolean deliversAll(List<Vehicle> vehicles, List<Plan> plans, TaskSet tasks) {
+        if (plans == null || plans.size() != vehicles.size())
+            return false;
+        TaskSet pickedUp = TaskSet.noneOf(tasks);
+        TaskSet delivered = TaskSet.noneOf(tasks);
+        for (int v = 0; v < plans.size(); v++) {
+            PlanChecker checker = new PlanChecker(vehicles.get(v), tasks, pickedUp, delivered);
+            for (Action action : plans.get(v)) {
+                if (!action.accept(checker))
+                    return false;
+            }
+            if (!checker.carried.isEmpty())
+                return false;
+        }
+        return delivered.size() == tasks.size();
+    }
+
+    // Follows the plan of a vehicle, false on the first action it cannot do
+    private static class PlanChecker implements ActionHandler<Boolean> {
+        final Vehicle vehicle;
+        final TaskSet tasks;
+        final TaskSet pickedUp; // by all the vehicles
+        final TaskSet delivered;
+        final TaskSet carried;
+        City city;
+
+        PlanChecker(Vehicle vehicle, TaskSet tasks, TaskSet pickedUp, TaskSet delivered) {
+            this.vehicle = vehicle;
+            this.tasks = tasks;
+            this.pickedUp = pickedUp;
+            this.delivered = delivered;
+            this.carried = TaskSet.noneOf(tasks);
+            this.city = vehicle.getCurrentCity();
+        }
+
+        @Override
+        public Boolean moveTo(City next) {
+            if (!city.hasNeighbor(next))
+                return false;
+            city = next;
+            return true;
+        }
+
+        @Override
+        public Boolean pickup(Task task) {
+            if (!tasks.contains(task) || task.pickupCity != city || carried.weightSum() + task.weight > vehicle.capacity())
+                return false;
+            carried.add(task);
+            return pickedUp.add(task);
+        }
+
+        @Override
+        public Boolean deliver(Task task) {
+            return task.deliveryCity == city && carried.remove(task) && delivered.add(task);
+        }
+    }
+}
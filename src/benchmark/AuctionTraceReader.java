@@ -0,0 +1,143 @@
+package benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import template.AuctionTrace;
+
+import static template.AuctionTrace.readBid;
+import static template.AuctionTrace.readVarLong;
+
+// Reads a trace written by template.AuctionTrace: the header when it is opened, then the records one by one
+public class AuctionTraceReader implements Closeable {
+    public final int agentId;
+    public final long timeoutSetup;
+    public final long timeoutBid;
+    public final long timeoutPlan;
+    public final List<String> cities = new ArrayList<>(); // names, in id order
+    public final double[][] probabilities;
+    public final int[][] rewards;
+    public final int[][] weights;
+    public final double[] noTaskProbabilities;
+    public final List<VehicleRecord> vehicles = new ArrayList<>();
+    private final DataInputStream in;
+
+    public static class VehicleRecord {
+        public final int id;
+        public final String name;
+        public final int homeCity;
+        public final int capacity;
+        public final int costPerKm;
+
+        VehicleRecord(int id, String name, int homeCity, int capacity, int costPerKm) {
+            this.id = id;
+            this.name = name;
+            this.homeCity = homeCity;
+            this.capacity = capacity;
+            this.costPerKm = costPerKm;
+        }
+    }
+
+    // One call of the agent, the fields of its type are set (see the format in AuctionTrace)
+    public static class Record {
+        public final byte type; // AuctionTrace.ASK, RESULT or PLAN
+        public int taskId, pickupCity, deliveryCity, weight;
+        public long reward;
+        public Long bid; // ASK: our bid, null if we did not bid
+        public int winner; // RESULT: -1 if nobody bid
+        public Long[] bids; // RESULT: bids of all the agents
+        public int nrTasks; // PLAN
+        public double cost; // PLAN
+        public long nanos; // ASK and PLAN: time of the call
+
+        Record(byte type) {
+            this.type = type;
+        }
+    }
+
+    public AuctionTraceReader(String file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        if (in.readInt() != AuctionTrace.MAGIC)
+            throw new IOException(file + " is not an auction trace");
+        long version = readVarLong(in);
+        if (version != AuctionTrace.VERSION)
+            throw new IOException("Unsupported auction trace version " + version + " in " + file);
+        this.agentId = (int) readVarLong(in);
+        this.timeoutSetup = readVarLong(in);
+        this.timeoutBid = readVarLong(in);
+        this.timeoutPlan = readVarLong(in);
+
+        int nrCities = (int) readVarLong(in);
+        for (int i = 0; i < nrCities; i++)
+            cities.add(in.readUTF());
+        this.probabilities = new double[nrCities][nrCities];
+        this.rewards = new int[nrCities][nrCities];
+        this.weights = new int[nrCities][nrCities];
+        for (int from = 0; from < nrCities; from++) {
+            for (int to = 0; to < nrCities; to++) {
+                probabilities[from][to] = in.readDouble();
+                rewards[from][to] = (int) readVarLong(in);
+                weights[from][to] = (int) readVarLong(in);
+            }
+        }
+        this.noTaskProbabilities = new double[nrCities];
+        for (int city = 0; city < nrCities; city++)
+            noTaskProbabilities[city] = in.readDouble();
+
+        int nrVehicles = (int) readVarLong(in);
+        for (int i = 0; i < nrVehicles; i++) {
+            vehicles.add(new VehicleRecord((int) readVarLong(in), in.readUTF(), (int) readVarLong(in),
+                    (int) readVarLong(in), (int) readVarLong(in)));
+        }
+    }
+
+    // The next record, null at the end of the trace. A trace cut in a record (the agent was killed) ends before it
+    public Record next() throws IOException {
+        try {
+            int type = in.read();
+            if (type == -1)
+                return null;
+            Record record = new Record((byte) type);
+            switch (record.type) {
+                case AuctionTrace.ASK:
+                    record.taskId = (int) readVarLong(in);
+                    record.pickupCity = (int) readVarLong(in);
+                    record.deliveryCity = (int) readVarLong(in);
+                    record.reward = readVarLong(in);
+                    record.weight = (int) readVarLong(in);
+                    record.bid = readBid(in);
+                    record.nanos = readVarLong(in);
+                    break;
+                case AuctionTrace.RESULT:
+                    record.taskId = (int) readVarLong(in);
+                    record.reward = readVarLong(in);
+                    record.winner = (int) AuctionTrace.unzigzag(readVarLong(in));
+                    record.bids = new Long[(int) readVarLong(in)];
+                    for (int i = 0; i < record.bids.length; i++)
+                        record.bids[i] = readBid(in);
+                    break;
+                case AuctionTrace.PLAN:
+                    record.nrTasks = (int) readVarLong(in);
+                    record.cost = in.readDouble();
+                    record.nanos = readVarLong(in);
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + type);
+            }
+            return record;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import datastructures.TopologyIndex;
+import logist.config.Parsers;
+import logist.task.Task;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+// A topology, a vehicle and a seeded set of tasks, the same for every run with the same parameters
+public class BenchmarkScenario {
+    private static final int TASK_WEIGHT = 3;
+
+    public final String topologyFile;
+    public final Topology topology;
+    public final BenchmarkVehicle vehicle;
+    public final List<Task> tasks;
+
+    public BenchmarkScenario(String topologyFile, Topology topology, int nrTasks, long seed) {
+        this.topologyFile = topologyFile;
+        this.topology = topology;
+        TopologyIndex.of(topology);
+
+        Random random = new Random(seed);
+        this.vehicle = new BenchmarkVehicle(0, "Vehicle 1", topology.randomCity(random), 30, 5);
+        this.tasks = randomTasks(topology, random, nrTasks, 0);
+    }
+
+    // Tasks between two different random cities, weights as in config/auction.xml (3 kg)
+    public static List<Task> randomTasks(Topology topology, Random random, int nrTasks, int firstId) {
+        List<Task> tasks = new ArrayList<>(nrTasks);
+        for (int i = 0; i < nrTasks; i++) {
+            City pickup = topology.randomCity(random);
+            City delivery;
+            do {
+                delivery = topology.randomCity(random);
+            } while (delivery == pickup);
+            tasks.add(new Task(firstId + i, pickup, delivery, 0, TASK_WEIGHT));
+        }
+        return tasks;
+    }
+
+    public static Topology loadTopology(String topologyFile) {
+        try {
+            return Parsers.parseTopology(topologyFile);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot load topology " + topologyFile, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return topologyFile + " / " + tasks.size() + " tasks";
+    }
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.awt.Color;
+
+import logist.simulation.Vehicle;
+import logist.task.TaskSet;
+import logist.topology.Topology.City;
+
+// Stand-in for the logist vehicles, so the planning code can run headless without the platform
+public class BenchmarkVehicle implements Vehicle {
+    private final int id;
+    private final String name;
+    private final int capacity;
+    private final int costPerKm;
+    private final City homeCity;
+
+    public BenchmarkVehicle(int id, String name, City homeCity, int capacity, int costPerKm) {
+        this.id = id;
+        this.name = name;
+        this.homeCity = homeCity;
+        this.capacity = capacity;
+        this.costPerKm = costPerKm;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public City homeCity() {
+        return homeCity;
+    }
+
+    @Override
+    public double speed() {
+        return 90;
+    }
+
+    @Override
+    public int costPerKm() {
+        return costPerKm;
+    }
+
+    @Override
+    public City getCurrentCity() {
+        return homeCity;
+    }
+
+    @Override
+    public TaskSet getCurrentTasks() {
+        return null;
+    }
+
+    @Override
+    public long getReward() {
+        return 0;
+    }
+
+    @Override
+    public long getDistanceUnits() {
+        return 0;
+    }
+
+    @Override
+    public double getDistance() {
+        return 0;
+    }
+
+    @Override
+    public Color color() {
+        return Color.BLACK;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,168 @@
+package benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import algorithms.AStar;
+import centralized.Candidate;
+import centralized.PD_Action;
+import template.State;
+
+// Micro-benchmarks of the plan search, run headless on the topologies of config/topology with seeded tasks:
+//  - expand: State.generateChildren, in nodes expanded per second and bytes allocated per node
+//  - closed-set: inserting the expanded states in a HashMap and looking them up (State.equals/hashCode), per second
+//  - astar: AStar.aStarPlan until the optimal plan, in ms and bytes allocated per search
+// Every benchmark is run for warmup iterations (not reported) and then measured iterations, JMH style.
+//
+// Usage: java benchmark.PlanningBenchmark [topologies=england,france] [tasks=3-10] [warmup=3] [iterations=5]
+//                                         [seed=123456] [expansions=20000]
+public class PlanningBenchmark {
+    private static final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmup;
+    private final int iterations;
+    private final int expansions;
+    private final HashMap<BenchmarkScenario, List<State>> expandedStates = new HashMap<>();
+
+    // One measured run: how long it took, how much it allocated and how many operations (nodes, states...) it did
+    private static class Sample {
+        final long nanos;
+        final long bytes;
+        final long operations;
+
+        Sample(long nanos, long bytes, long operations) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+            this.operations = operations;
+        }
+    }
+
+    private interface Benchmark {
+        long run(BenchmarkScenario scenario); // returns the number of operations done
+    }
+
+    private PlanningBenchmark(int warmup, int iterations, int expansions) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+        this.expansions = expansions;
+    }
+
+    public static void main(String[] args) {
+        HashMap<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2)
+                throw new IllegalArgumentException("Arguments are key=value, got " + arg);
+            options.put(keyValue[0], keyValue[1]);
+        }
+
+        List<String> topologies = Arrays.asList(options.getOrDefault("topologies", "england,france,switzerland,the_netherlands").split(","));
+        String[] taskRange = options.getOrDefault("tasks", "3-10").split("-");
+        int minTasks = Integer.parseInt(taskRange[0]);
+        int maxTasks = Integer.parseInt(taskRange[taskRange.length - 1]);
+        long seed = Long.parseLong(options.getOrDefault("seed", "123456"));
+        PlanningBenchmark benchmark = new PlanningBenchmark(
+                Integer.parseInt(options.getOrDefault("warmup", "3")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Integer.parseInt(options.getOrDefault("expansions", "20000")));
+
+        if (!threadBean.isThreadAllocatedMemorySupported())
+            System.out.println("Allocation per operation is not supported by this JVM, it will be reported as 0");
+        else
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        System.out.printf("%-40s %-11s %16s %16s %16s%n", "scenario", "benchmark", "ops/s", "ms/op", "bytes/op");
+        for (String name : topologies) {
+            String topologyFile = "config" + File.separator + "topology" + File.separator + name + ".xml";
+            logist.topology.Topology topology = BenchmarkScenario.loadTopology(topologyFile);
+
+            for (int nrTasks = minTasks; nrTasks <= maxTasks; nrTasks++) {
+                BenchmarkScenario scenario = new BenchmarkScenario(topologyFile, topology, nrTasks, seed + nrTasks);
+                benchmark.measure(scenario, "expand", benchmark::expand);
+                benchmark.measure(scenario, "closed-set", benchmark::closedSet);
+                benchmark.measure(scenario, "astar", PlanningBenchmark::aStar);
+            }
+        }
+    }
+
+    private void measure(BenchmarkScenario scenario, String name, Benchmark benchmark) {
+        for (int i = 0; i < warmup; i++)
+            benchmark.run(scenario);
+
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long operations = benchmark.run(scenario);
+            long nanos = System.nanoTime() - start;
+            samples.add(new Sample(nanos, allocatedBytes() - bytesBefore, operations));
+        }
+
+        double operations = 0, nanos = 0, bytes = 0;
+        for (Sample sample : samples) {
+            operations += sample.operations;
+            nanos += sample.nanos;
+            bytes += sample.bytes;
+        }
+        System.out.printf("%-40s %-11s %16.1f %16.4f %16.1f%n", scenario, name,
+                operations / (nanos / 1e9), nanos / 1e6 / operations, bytes / operations);
+    }
+
+    private static long allocatedBytes() {
+        return threadBean.isThreadAllocatedMemorySupported() ? threadBean.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    // Expand states breadth first from the initial state, one operation per expanded node
+    private long expand(BenchmarkScenario scenario) {
+        ArrayDeque<State> queue = new ArrayDeque<>();
+        queue.add(new State(scenario.vehicle, scenario.tasks));
+        long expanded = 0;
+        while (!queue.isEmpty() && expanded < expansions) {
+            queue.addAll(queue.poll().generateChildren());
+            expanded++;
+        }
+        return expanded;
+    }
+
+    // Same states as above, inserted in the kind of map A* uses as closed set and looked up again, one operation per
+    // insertion or lookup. The states are generated once per scenario, outside of the measure
+    private long closedSet(BenchmarkScenario scenario) {
+        List<State> states = expandedStates.computeIfAbsent(scenario, this::expandedStates);
+
+        HashMap<State, Double> history = new HashMap<>();
+        for (State state : states)
+            history.merge(state, state.getCostToReach(), Math::min);
+        for (State state : states) {
+            if (!history.containsKey(state))
+                throw new AssertionError("State lost in the closed set: " + state);
+        }
+        return 2L * states.size();
+    }
+
+    private List<State> expandedStates(BenchmarkScenario scenario) {
+        ArrayDeque<State> queue = new ArrayDeque<>();
+        List<State> states = new ArrayList<>();
+        queue.add(new State(scenario.vehicle, scenario.tasks));
+        while (!queue.isEmpty() && states.size() < expansions) {
+            State state = queue.poll();
+            states.add(state);
+            queue.addAll(state.generateChildren());
+        }
+        return states;
+    }
+
+    // A full search until the optimal plan, one operation per search
+    private static long aStar(BenchmarkScenario scenario) {
+        State initialState = new State(scenario.vehicle, scenario.tasks);
+        List<PD_Action> plan = AStar.aStarPlan(scenario.vehicle, scenario.tasks, initialState);
+        if (plan == null || Candidate.ComputeCost(scenario.vehicle, plan) < 0)
+            throw new AssertionError("No plan for " + scenario);
+        return 1;
+    }
+}
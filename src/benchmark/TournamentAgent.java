@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import logist.agent.Agent;
+import logist.agent.AgentStatistics;
+import logist.simulation.Vehicle;
+import logist.task.TaskSet;
+
+// Stand-in for the logist agents in a headless auction (see AuctionTournament): its id, company vehicles and the
+// tasks won so far and the properties set by the tournament. The statistics are computed by the tournament, not here
+public class TournamentAgent implements Agent {
+    private final int id;
+    private final String name;
+    private final List<Vehicle> vehicles;
+    private TaskSet tasks = null;
+    private final HashMap<String, Object> properties = new HashMap<>(); // as set in agents.xml for the platform
+
+    public TournamentAgent(int id, String name, List<BenchmarkVehicle> vehicles) {
+        this.id = id;
+        this.name = name;
+        this.vehicles = new ArrayList<>(vehicles);
+    }
+
+    void setTasks(TaskSet tasks) {
+        this.tasks = tasks;
+    }
+
+    void setProperty(String name, Object value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public List<Vehicle> vehicles() {
+        return vehicles;
+    }
+
+    @Override
+    public TaskSet getTasks() {
+        return tasks;
+    }
+
+    @Override
+    public <T> T readProperty(String paramName, Class<T> clazz, T default_) {
+        Object value = properties.get(paramName);
+        return value == null ? default_ : clazz.cast(value);
+    }
+
+    @Override
+    public long getTotalDistanceUnits() {
+        return 0;
+    }
+
+    @Override
+    public double getTotalDistance() {
+        return 0;
+    }
+
+    @Override
+    public long getTotalCost() {
+        return 0;
+    }
+
+    @Override
+    public long getTotalReward() {
+        return 0;
+    }
+
+    @Override
+    public long getTotalProfit() {
+        return 0;
+    }
+
+    @Override
+    public int getTotalTasks() {
+        return 0;
+    }
+
+    @Override
+    public int compareTo(AgentStatistics that) {
+        return Long.compare(that.getTotalProfit(), getTotalProfit());
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,333 @@
+package centralized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.random.RandomGenerator;
+
+import algorithms.RegretInsertion;
+import logist.simulation.Vehicle;
+import logist.task.Task;
+
+// Adaptive large neighbourhood search: every iteration removes a share of the tasks from their plans (destroy) and puts
+// them back at their cheapest places (repair), on a Solution, so a rejected iteration is just a rollback.
+//  - destroy: random tasks, the tasks that cost the most in their plan (worst), or tasks whose pickup and delivery
+//    cities are close to each other (related, Shaw removal)
+//  - repair: greedy (cheapest insertion first) or k-regret insertion, the choice of RegretInsertion
+// The new solution is accepted as in simulated annealing, with a temperature going down linearly to 0 at the deadline.
+// Destroy and repair operators are drawn by roulette wheel, with weights that follow the scores they got in the last
+// segment of iterations: new best solution, better than the current one, or worse but accepted.
+// With several starts, independent searches from the same solution run in parallel, each with its own random stream,
+// and the best plans of all win (a portfolio, as the walkers of CentralizedTemplate.ParallelSLS).
+public class ALNS implements PlanSearch {
+    private static final double MIN_REMOVAL_SHARE = 0.1;	// share of the tasks removed by an iteration, drawn between
+    private static final double MAX_REMOVAL_SHARE = 0.4;	// these two
+    private static final double RANDOMNESS = 3;	// worst and related removal take the y^RANDOMNESS-th best task, y in [0, 1)
+    private static final double WORSE_SHARE = 0.05;	// a solution this much worse is accepted with probability 1/2 at first
+    private static final int SEGMENT = 100;	// iterations between weight updates
+    private static final double REACTION = 0.1;	// how fast the weights follow the scores
+    private static final double SCORE_BEST = 33, SCORE_BETTER = 9, SCORE_ACCEPTED = 13;
+
+    private static final int RANDOM_REMOVAL = 0, WORST_REMOVAL = 1, RELATED_REMOVAL = 2;
+    private static final int[] REPAIR_REGRETS = {1, 2, 3};	// k of each repair operator, 1 is greedy
+
+    private final RandomGenerator random;
+    private int nr_starts = 1;	// independent searches of Search, see setNr_starts
+    private final double[] destroy_weights = {1, 1, 1};
+    private final double[] repair_weights = new double[REPAIR_REGRETS.length];
+    private final double[] destroy_scores = new double[3];
+    private final double[] repair_scores = new double[REPAIR_REGRETS.length];
+    private final int[] destroy_uses = new int[3];
+    private final int[] repair_uses = new int[REPAIR_REGRETS.length];
+
+    // Working state of the search
+    private Solution A;
+    private int num_tasks;
+    private int num_vehicles;
+    private int[] vehicle_of;	// vehicle of each task, before the destroy
+    private int[] pickup_positions;	// positions of the actions of each task in its plan, for worst removal
+    private int[] delivery_positions;
+    private boolean[] removed;
+    private int[] removed_tasks;	// tasks removed by the destroy, not yet inserted back
+    private int num_removed;
+    private Integer[] candidates;	// tasks sorted by worst and related removal
+    private double[] keys;	// their sort keys
+    private PlanSummary[] summaries;	// of the plan of each vehicle, during the repair
+    private double[][] insertion_costs;	// insertion_costs[t][vid], with their positions in the plan
+    private int[][] insertion_pickups;
+    private int[][] insertion_deliveries;
+
+    public ALNS(RandomGenerator random) {
+        this.random = random;
+        Arrays.fill(repair_weights, 1);
+    }
+
+    public void setNr_starts(int nr_starts) {
+        this.nr_starts = nr_starts;
+    }
+
+    @Override
+    public List<List<PD_Action>> Search(List<Vehicle> vehicles, List<Task> tasks, Candidate initial, long timeout) {
+        if (initial == null)
+            initial = RegretInsertion.initialSolution(vehicles, tasks, CentralizedTemplate.REGRET_K);
+        if (nr_starts == 1)
+            return Run(initial, timeout).plans;
+
+        // the first search uses the random of this one, the others streams split from it
+        List<ALNS> searches = new ArrayList<>();
+        searches.add(new ALNS(random));
+        SplittableRandom streams = new SplittableRandom(random.nextLong());
+        for (int i = 1; i < nr_starts; i++) {
+            searches.add(new ALNS(streams.split()));
+        }
+
+        Candidate start = initial;
+        ForkJoinPool pool = new ForkJoinPool(nr_starts);
+        try {
+            List<ForkJoinTask<Candidate>> running = new ArrayList<>();
+            for (ALNS search : searches) {
+                running.add(pool.submit(() -> search.Run(start, timeout)));
+            }
+            Candidate best = null;
+            for (ForkJoinTask<Candidate> search : running) {
+                Candidate found = search.join();
+                if (best == null || found.cost < best.cost) {
+                    best = found;
+                }
+            }
+            System.out.println("The best of " + nr_starts + " ALNS starts costs " + best.cost);
+            return best.plans;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // One search from the initial solution, for timeout ms. Returns the best solution found
+    private Candidate Run(Candidate initial, long timeout) {
+        System.out.println("Building plan with ALNS...");
+        long time_start = System.currentTimeMillis();
+        long deadline = time_start + timeout;
+
+        Start(initial);
+
+        Candidate best = initial;
+        double best_cost = A.Cost();
+        double initial_temperature = -WORSE_SHARE * A.Cost() / Math.log(0.5);
+        long iterations = 0;
+
+        while (num_tasks > 0 && System.currentTimeMillis() < deadline) {
+            double current_cost = A.Cost();
+            int mark = A.Mark();
+
+            int destroy = Roulette(destroy_weights);
+            int repair = Roulette(repair_weights);
+            Destroy(destroy, RemovalCount());
+            Repair(REPAIR_REGRETS[repair]);
+
+            double score = 0;
+            double cost = A.Cost();
+            double remaining = Math.max(0, deadline - System.currentTimeMillis()) / (double) Math.max(1, timeout);
+            double temperature = initial_temperature * remaining;
+            if (cost < best_cost) {
+                score = SCORE_BEST;
+                best_cost = cost;
+                best = A.ToCandidate();
+            } else if (cost < current_cost) {
+                score = SCORE_BETTER;
+            } else if (temperature > 0 && random.nextDouble() < Math.exp((current_cost - cost) / temperature)) {
+                score = cost > current_cost ? SCORE_ACCEPTED : 0;
+            } else {
+                A.Rollback(mark);
+            }
+            A.Commit();
+
+            destroy_scores[destroy] += score;
+            destroy_uses[destroy]++;
+            repair_scores[repair] += score;
+            repair_uses[repair]++;
+            if (++iterations % SEGMENT == 0) {
+                UpdateWeights(destroy_weights, destroy_scores, destroy_uses);
+                UpdateWeights(repair_weights, repair_scores, repair_uses);
+            }
+        }
+
+        long duration = System.currentTimeMillis() - time_start;
+        System.out.println("The plan was generated in " + duration + " ms by ALNS in " + iterations
+                + " iterations with a cost of " + best_cost);
+        return best;
+    }
+
+    private void Start(Candidate initial) {
+        A = new Solution(initial);
+        num_tasks = A.table.Size();
+        num_vehicles = A.vehicles.size();
+        vehicle_of = new int[num_tasks];
+        pickup_positions = new int[num_tasks];
+        delivery_positions = new int[num_tasks];
+        removed = new boolean[num_tasks];
+        removed_tasks = new int[num_tasks];
+        candidates = new Integer[num_tasks];
+        keys = new double[num_tasks];
+        summaries = new PlanSummary[num_vehicles];
+        for (int vid = 0; vid < num_vehicles; vid++) {
+            summaries[vid] = new PlanSummary(2 * num_tasks);
+        }
+        insertion_costs = new double[num_tasks][num_vehicles];
+        insertion_pickups = new int[num_tasks][num_vehicles];
+        insertion_deliveries = new int[num_tasks][num_vehicles];
+    }
+
+    private int RemovalCount() {
+        int min = Math.max(1, (int) (MIN_REMOVAL_SHARE * num_tasks));
+        int max = Math.max(min, (int) (MAX_REMOVAL_SHARE * num_tasks));
+        return min + random.nextInt(max - min + 1);
+    }
+
+    // Index drawn with probability proportional to its weight
+    private int Roulette(double[] weights) {
+        double total = 0;
+        for (double w : weights) {
+            total += w;
+        }
+        double r = random.nextDouble() * total;
+        for (int i = 0; i < weights.length - 1; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static void UpdateWeights(double[] weights, double[] scores, int[] uses) {
+        for (int i = 0; i < weights.length; i++) {
+            if (uses[i] > 0) {
+                weights[i] = (1 - REACTION) * weights[i] + REACTION * scores[i] / uses[i];
+            }
+            weights[i] = Math.max(weights[i], 0.01);	// every operator keeps a chance
+            scores[i] = 0;
+            uses[i] = 0;
+        }
+    }
+
+
+// DESTROY OPERATORS
+
+    // Remove q tasks from their plans. They stay in the task lists of their vehicles until the repair moves them
+    private void Destroy(int operator, int q) {
+        for (int vid = 0; vid < num_vehicles; vid++) {
+            for (int i = 0; i < A.taskListSizes[vid]; i++) {
+                vehicle_of[A.taskLists[vid][i]] = vid;
+            }
+        }
+        Arrays.fill(removed, false);
+        num_removed = 0;
+
+        switch (operator) {
+            case RANDOM_REMOVAL:
+                while (num_removed < q) {
+                    int t = random.nextInt(num_tasks);
+                    if (!removed[t]) {
+                        Remove(t);
+                    }
+                }
+                break;
+            case WORST_REMOVAL:
+                while (num_removed < q) {
+                    // the cost of the plans without each task changes with every removal
+                    for (int vid = 0; vid < num_vehicles; vid++) {
+                        for (int k = 0; k < A.planSizes[vid]; k++) {
+                            int action = A.plans[vid][k];
+                            if (TaskTable.IsPickup(action))
+                                pickup_positions[TaskTable.TaskOf(action)] = k;
+                            else
+                                delivery_positions[TaskTable.TaskOf(action)] = k;
+                        }
+                    }
+                    int n = 0;
+                    for (int t = 0; t < num_tasks; t++) {
+                        if (!removed[t]) {
+                            keys[t] = -A.ActionsDelta(vehicle_of[t], pickup_positions[t], delivery_positions[t]);
+                            candidates[n++] = t;
+                        }
+                    }
+                    Remove(Pick(n));
+                }
+                break;
+            case RELATED_REMOVAL:
+                Remove(random.nextInt(num_tasks));
+                while (num_removed < q) {
+                    int r = removed_tasks[random.nextInt(num_removed)];
+                    int n = 0;
+                    for (int t = 0; t < num_tasks; t++) {
+                        if (!removed[t]) {
+                            keys[t] = A.topology.distance(A.table.pickupCities[r], A.table.pickupCities[t])
+                                    + A.topology.distance(A.table.deliveryCities[r], A.table.deliveryCities[t]);
+                            candidates[n++] = t;
+                        }
+                    }
+                    Remove(Pick(n));
+                }
+                break;
+        }
+    }
+
+    // One of the n candidates sorted by key, the lowest ones being the most likely
+    private int Pick(int n) {
+        Arrays.sort(candidates, 0, n, (a, b) -> Double.compare(keys[a], keys[b]));
+        return candidates[(int) (Math.pow(random.nextDouble(), RANDOMNESS) * n)];
+    }
+
+    private void Remove(int t) {
+        A.RemoveFromPlan(vehicle_of[t], t);
+        removed[t] = true;
+        removed_tasks[num_removed++] = t;
+    }
+
+
+// REPAIR OPERATORS
+
+    // Insert the removed tasks back at their cheapest places, in the order of RegretInsertion.Choice: the one with the
+    // largest k-regret first (the cheapest one if k = 1). Only the insertions in the vehicle that got the last task are
+    // costed again
+    private void Repair(int k) {
+        for (int vid = 0; vid < num_vehicles; vid++) {
+            CostInsertions(vid);
+        }
+
+        RegretInsertion.Choice choice = new RegretInsertion.Choice(k, num_vehicles);
+        while (num_removed > 0) {
+            // a task always fits back at the start of the plan of its vehicle
+            choice.reset();
+            for (int i = 0; i < num_removed; i++) {
+                choice.offer(i, insertion_costs[removed_tasks[i]]);
+            }
+            int best_index = choice.task();
+            int best_vehicle = choice.vehicle();
+
+            int t = removed_tasks[best_index];
+            removed_tasks[best_index] = removed_tasks[--num_removed];
+            A.InsertInPlan(best_vehicle, t, insertion_pickups[t][best_vehicle], insertion_deliveries[t][best_vehicle]);
+            if (best_vehicle != vehicle_of[t]) {
+                A.MoveInTaskLists(t, vehicle_of[t], best_vehicle);
+            }
+            CostInsertions(best_vehicle);
+        }
+    }
+
+    // Best insertion of every removed task in the current plan of the vehicle
+    private void CostInsertions(int vid) {
+        PlanSummary plan = summaries[vid];
+        plan.Summarise(A, vid, -1);
+        for (int i = 0; i < num_removed; i++) {
+            int t = removed_tasks[i];
+            insertion_costs[t][vid] = plan.BestInsertion(A, vid, t);
+            insertion_pickups[t][vid] = plan.insertion_pickup;
+            insertion_deliveries[t][vid] = plan.insertion_delivery;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package centralized;
+
+import java.util.random.RandomGenerator;
+
+import logist.task.Task;
+
+// Acceptance strategy of an SLS walk: decides, from the current solution and its neighbours, where the walk goes next.
+// Each walker gets its own instance, as strategies keep state (temperature, tabu list...).
+public interface Acceptance {
+
+    // Called once before the walk, with the initial solution and the time (ms) at which the walk ends
+    void Start(Solution A, long deadline);
+
+    // Move A to the next solution of the walk or leave it as it is. best_cost is the best cost seen by the walk
+    void LocalChoice(Solution A, RandomGenerator random, double best_cost);
+
+    // Whether a neighbour that moves the task and costs neighbour_cost may be chosen, asked by Solution.ChooseNeighbours
+    default boolean Allows(Task t, double neighbour_cost) {
+        return true;
+    }
+}
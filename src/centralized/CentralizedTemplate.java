@@ -4,7 +4,14 @@ package centralized;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.DoubleFunction;
+import java.util.random.RandomGenerator;
+
+import algorithms.RegretInsertion;
+import datastructures.TopologyIndex;
 import logist.LogistSettings;
 
 import logist.agent.Agent;
@@ -22,11 +29,32 @@ import java.io.File;
 
 
 @SuppressWarnings("unused")
-public class CentralizedTemplate {
+public class CentralizedTemplate implements PlanSearch {
     private long timeout_setup;
     private long timeout_plan;
     private double p; // probability of returning old solution for SLS algorithm
     private Random random;
+    private int nr_walkers = 1; // walkers of Search, see ParallelSLS
+
+    // Parallel SLS: the walkers other than the first one use p times one of these factors, and every SHARE_PERIOD ms
+    // they publish their best solution and restart from the best of all if it is better than theirs
+    private static final double[] WALKER_P_FACTORS = {0.5, 1.5, 0.25, 2.0};
+    private static final long SHARE_PERIOD = 200;
+
+    // Without an initial solution SLS starts from the k-regret insertion of the tasks (see RegretInsertion)
+    public static final int REGRET_K = 2;
+
+    // Acceptance strategies of the walkers (see Acceptance). By default the walkers take turns with iterated local search,
+    // simulated annealing, tabu search and the greedy choice with their p, setAcceptance gives one strategy, made from p,
+    // to all of them
+    private static final int KICK_MOVES = 3;
+    private static final double INITIAL_TEMPERATURE_SHARE = 0.01;
+    private static final int TABU_TENURE = 5;
+    private DoubleFunction<Acceptance> acceptance = null;
+
+    public CentralizedTemplate() {
+        setClassVariables();
+    }
 
     // Setup function
     private void setClassVariables() {
@@ -43,37 +71,71 @@ public class CentralizedTemplate {
         this.timeout_plan = timeout_plan;
     }
 
+    public void setAcceptance(DoubleFunction<Acceptance> acceptance) {
+        this.acceptance = acceptance;
+    }
+
+    public void setNr_walkers(int nr_walkers) {
+        this.nr_walkers = nr_walkers;
+    }
+
+    // PlanSearch: ParallelSLS with nr_walkers walkers for timeout ms
+    @Override
+    public List<List<PD_Action>> Search(List<Vehicle> vehicles, List<Task> tasks, Candidate A, long timeout) {
+        setTimeout_plan(timeout);
+        return ParallelSLS(vehicles, tasks, A, nr_walkers);
+    }
+
     // Solve the optimization problem with the SLS algorithm
     public List<List<PD_Action>> SLS(List<Vehicle> vehicles, List<Task> task_list, Candidate A) {
-        setClassVariables();
+        return ParallelSLS(vehicles, task_list, A, 1);
+    }
+
+    // Solve the optimization problem with nr_walkers independent SLS walkers in parallel, until timeout_plan. Each
+    // walker has its own random stream and p, they share their best solutions and the best of all is returned
+    public List<List<PD_Action>> ParallelSLS(List<Vehicle> vehicles, List<Task> task_list, Candidate A, int nr_walkers) {
         System.out.println("Building plan...");
 
         long time_start = System.currentTimeMillis();
+        long deadline = time_start + timeout_plan;
 
         // Begin SLS Algorithm
 
 
         // create initial solution
         if (A == null)
-            A = Candidate.SelectInitialSolution(random, vehicles, task_list);
-
-
-        // Optimization loop - repeat until timeout
-        boolean timeout_reached = false;
-
-        while (!timeout_reached) {
-            // record old solution
-            Candidate A_old = A;
-
-            // generate neighbours
-            List<Candidate> N = A_old.ChooseNeighbours(random);
-
-            // Get the solution for the next iteration
-            A = LocalChoice(N, A_old);
+            A = RegretInsertion.initialSolution(vehicles, task_list, REGRET_K);
+
+
+        // create the walkers, the first one uses the random and p of the template. They all encode their plans with
+        // the same table of tasks
+        TaskTable table = new TaskTable(A);
+        SharedBest shared = new SharedBest();
+        List<Walker> walkers = new ArrayList<>();
+        walkers.add(new Walker(0, A, table, random, p, deadline, shared));
+        SplittableRandom streams = new SplittableRandom(random.nextLong());
+        for (int i = 1; i < nr_walkers; i++) {
+            double walker_p = p * WALKER_P_FACTORS[(i - 1) % WALKER_P_FACTORS.length];
+            walkers.add(new Walker(i, A, table, streams.split(), walker_p, deadline, shared));
+        }
 
-            // Check timeout condition
-            if (System.currentTimeMillis() - time_start > timeout_plan) {
-                timeout_reached = true;
+        // Optimization loops - repeat until timeout
+        if (nr_walkers == 1) {
+            walkers.get(0).run();
+        }
+        else {
+            ForkJoinPool pool = new ForkJoinPool(nr_walkers);
+            try {
+                List<ForkJoinTask<?>> running = new ArrayList<>();
+                for (Walker walker : walkers) {
+                    running.add(pool.submit(walker));
+                }
+                for (ForkJoinTask<?> walker : running) {
+                    walker.join();
+                }
+            }
+            finally {
+                pool.shutdownNow();
             }
         }
 
@@ -82,58 +144,131 @@ public class CentralizedTemplate {
         // Informative outputs
         long time_end = System.currentTimeMillis();
         long duration = time_end - time_start;
-        double cost_plan = A.cost;
 
 
-        System.out.println("The plan was generated in " + duration + " ms with a cost of " + A.cost);
+        System.out.println("The plan was generated in " + duration + " ms by " + nr_walkers + " walker(s) with a cost of " + shared.Cost());
 
-        return A.plans;
+        return shared.Get().plans;
     }
 
-    List<Plan> PDPlantoPlan(Candidate A){
-        // Build plans for vehicles from the found solution
-        List<Plan> plan = PlanFromSolution(A);
-
-        for (Plan onePlan : plan) {
-            System.out.println(plan);
+    // Acceptance strategy of the walker with the given index and p
+    private Acceptance Acceptance(int walker, double p) {
+        if (acceptance != null) {
+            return acceptance.apply(p);
+        }
+        switch (walker % 4) {
+            case 0:
+                return new IteratedLocalSearch(KICK_MOVES);
+            case 1:
+                return new SimulatedAnnealing(INITIAL_TEMPERATURE_SHARE);
+            case 2:
+                return new TabuSearch(TABU_TENURE);
+            default:
+                return new GreedyAcceptance(p);
         }
-        return plan;
     }
 
+    // One SLS trajectory: its own random stream, acceptance strategy and working solution, where the neighbours are
+    // evaluated in place. The best solution seen is copied out of it
+    private class Walker implements Runnable {
+        private final RandomGenerator random;
+        private final Acceptance acceptance;
+        private final TaskTable table;
+        private final long deadline;
+        private final SharedBest shared;
+        private Solution current;
+        private Candidate best;
+        private double best_cost;
+
+        Walker(int index, Candidate A, TaskTable table, RandomGenerator random, double p, long deadline, SharedBest shared) {
+            this.random = random;
+            this.acceptance = Acceptance(index, p);
+            this.deadline = deadline;
+            this.shared = shared;
+            this.table = table;
+            this.current = new Solution(A, table);
+            this.best = A;
+            this.best_cost = current.Cost();
+        }
 
-    // Local choice to choose the next solution from the neighbours and the current solution
-    public Candidate LocalChoice(List<Candidate> N, Candidate A) {
-
+        @Override
+        public void run() {
+            long next_share = System.currentTimeMillis() + SHARE_PERIOD;
+            acceptance.Start(current, deadline);
 
-        if (random.nextFloat() < p) {	// Return A with probability p
+            // Optimization loop - repeat until timeout
+            boolean timeout_reached = false;
 
-            return A;
+            while (!timeout_reached) {
+                // move to the solution for the next iteration
+                acceptance.LocalChoice(current, random, best_cost);
+                current.Commit();
 
-        }
-        else {	// Return the best neightbour with probability 1-p
+                // keep the best solution found
+                if (current.Cost() < best_cost) {
+                    best_cost = current.Cost();
+                    best = current.ToCandidate();
+                }
 
-            int best_cost_index = 0; // index of the neighbour with best cost until now
-            double best_cost = N.get(best_cost_index).cost; // cost of the neighbour with best cost until now
+                long now = System.currentTimeMillis();
+
+                // share the best solutions, continue from the best of all if another walker did better
+                if (now >= next_share) {
+                    Candidate shared_best = shared.Exchange(best, best_cost);
+                    if (shared_best != null) {
+                        best = shared_best;
+                        current = new Solution(best, table);
+                        best_cost = current.Cost();
+                    }
+                    next_share = now + SHARE_PERIOD;
+                }
 
+                // Check timeout condition, an interrupt of the thread ends the search too
+                if (now > deadline || Thread.currentThread().isInterrupted()) {
+                    timeout_reached = true;
+                }
+            }
 
-            for (int n_ind = 1; n_ind < N.size(); n_ind++ ) {
+            shared.Offer(best, best_cost);
+        }
+    }
 
-                // check if current alternative has lower cost than the current best
-                if( N.get(n_ind).cost < best_cost )	{
-                    // if so, update the best solution
-                    best_cost_index = n_ind;
-                    best_cost = N.get(best_cost_index).cost;
-                }
+    // Best solution found by all the walkers
+    private static class SharedBest {
+        private Candidate best = null;
+        private double best_cost = Double.POSITIVE_INFINITY;
 
+        synchronized void Offer(Candidate A, double cost) {
+            if (cost < best_cost) {
+                best = A;
+                best_cost = cost;
             }
+        }
 
-            // return the best solution
-            return N.get(best_cost_index);
+        // Offer a solution and get the best of all if it is better than it, null otherwise
+        synchronized Candidate Exchange(Candidate A, double cost) {
+            Offer(A, cost);
+            return best_cost < cost ? best : null;
         }
-    }
 
+        synchronized Candidate Get() {
+            return best;
+        }
 
+        synchronized double Cost() {
+            return best_cost;
+        }
+    }
+
+    List<Plan> PDPlantoPlan(Candidate A){
+        // Build plans for vehicles from the found solution
+        List<Plan> plan = PlanFromSolution(A);
 
+        for (Plan onePlan : plan) {
+            System.out.println(plan);
+        }
+        return plan;
+    }
 
 
     // Build the plan for logist platform from the candidate solution
@@ -153,6 +288,7 @@ public class CentralizedTemplate {
 
             // follow vehicle cities to construct plan
             City current_city = v.getCurrentCity();
+            TopologyIndex topology = TopologyIndex.of(current_city);
             Plan v_plan = new Plan(current_city);
 
             // Append required primitive actions for each pickup/delivery action
@@ -169,7 +305,7 @@ public class CentralizedTemplate {
 
 
                 // Append move actions
-                for(City move_city : current_city.pathTo(next_city)) {
+                for(City move_city : topology.path(current_city, next_city)) {
                     v_plan.appendMove(move_city);
                 }
                 // Append pickup-delivery actions
@@ -0,0 +1,32 @@
+package centralized;
+
+import java.util.random.RandomGenerator;
+
+// The original local choice of the SLS: keep the solution with probability p, otherwise move to the best neighbour
+// even if it is worse than the current solution.
+public class GreedyAcceptance implements Acceptance {
+    private final double p; // probability of keeping the current solution
+
+    public GreedyAcceptance(double p) {
+        this.p = p;
+    }
+
+    @Override
+    public void Start(Solution A, long deadline) {
+    }
+
+    @Override
+    public void LocalChoice(Solution A, RandomGenerator random, double best_cost) {
+
+        if (random.nextFloat() < p) {	// Keep A with probability p
+
+            return;
+
+        }
+
+        // Move to the best neighbour with probability 1-p
+        if (A.ChooseNeighbours(random, this) < Double.POSITIVE_INFINITY) {
+            A.ApplyChosenNeighbour();
+        }
+    }
+}
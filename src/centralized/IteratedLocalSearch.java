@@ -0,0 +1,38 @@
+package centralized;
+
+import java.util.random.RandomGenerator;
+
+// Iterated local search: every step applies the best move of the exhaustive neighbourhoods of LocalSearch, and once no
+// move improves the solution (a local optimum) it is kicked out with a few random moves (Solution.RandomMove), which the
+// descent does not simply undo. The walk goes on from the kicked solution whatever its cost, the walker keeps the best
+// solution seen.
+public class IteratedLocalSearch implements Acceptance {
+    private final int kick_moves; // random moves applied at each local optimum
+    private LocalSearch local_search = null;
+    private Solution searched = null; // solution local_search works on, the walker may replace it on a restart
+
+    public IteratedLocalSearch(int kick_moves) {
+        this.kick_moves = kick_moves;
+    }
+
+    @Override
+    public void Start(Solution A, long deadline) {
+        local_search = null;
+        searched = null;
+    }
+
+    @Override
+    public void LocalChoice(Solution A, RandomGenerator random, double best_cost) {
+        if (A != searched) {
+            local_search = new LocalSearch(A);
+            searched = A;
+        }
+        if (local_search.ApplyBestMove()) {
+            return;
+        }
+
+        for (int i = 0; i < kick_moves; i++) {
+            A.RandomMove(random);
+        }
+    }
+}
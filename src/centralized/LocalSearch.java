@@ -0,0 +1,393 @@
+package centralized;
+
+// Exhaustive neighbourhoods of a Solution, for a best-improvement descent:
+//  - relocate: a task to every vehicle (its own included) at its best feasible pickup and delivery positions
+//  - exchange: two tasks of different vehicles swap vehicles, each at its best position in the plan of the other
+//  - 2-opt: reverse a segment of a plan that holds no complete task (its deliveries would come before its pickups)
+//  - or-opt: move a block of 2 or 3 consecutive actions elsewhere in its plan, keeping pickups before deliveries
+// Moves are costed from summaries of the plans (cities, loads and km after each action) without changing the solution,
+// only the best one is applied. Don't-look bits skip the tasks for which no improving move was found, until the plan of
+// their vehicle changes (Solution.versions).
+
+class LocalSearch {
+    private static final double EPSILON = 1e-9;
+    private static final int MAX_BLOCK = 3;	// longest block moved by or-opt
+
+    private final Solution A;
+    private final TaskTable table;
+    private final int num_vehicles;
+
+    private final PlanSummary[] plan_summaries;	// of the plan of each vehicle
+    private final PlanSummary[] without_summaries;	// of the plan of the vehicle of each task, without the task
+    private final int[] vehicle_of;	// vehicle of each task
+    private final int[] pickup_positions;	// position of the pickup of each task in its plan
+    private final int[] delivery_positions;	// position of the delivery of each task in its plan
+
+    // Don't-look bits: no improving move was found for the task when the plan of its vehicle had this version
+    private final boolean[] dont_look;
+    private final long[] dont_look_versions;
+    private final boolean[] active_vehicles;	// vehicles with a task that is not skipped, scanned by 2-opt and or-opt
+    private boolean task_improves;	// an improving move was found for the task being scanned
+
+    // Best move of the last scan
+    private static final int NONE = 0, RELOCATE = 1, EXCHANGE = 2, TWO_OPT = 3, OR_OPT = 4;
+    private int best_move;
+    private double best_delta;	// change of cost of the best move
+    private int best_t1, best_t2, best_vid_i, best_vid_j, best_first, best_last, best_pickup, best_delivery,
+            best_pickup2, best_delivery2;
+
+    private final int[] block_buffer = new int[MAX_BLOCK];
+
+    LocalSearch(Solution A) {
+        this.A = A;
+        this.table = A.table;
+        this.num_vehicles = A.vehicles.size();
+        int n = table.Size();
+        this.plan_summaries = new PlanSummary[num_vehicles];
+        for (int vid = 0; vid < num_vehicles; vid++) {
+            plan_summaries[vid] = new PlanSummary(2 * n);
+        }
+        this.without_summaries = new PlanSummary[n];
+        for (int t = 0; t < n; t++) {
+            without_summaries[t] = new PlanSummary(2 * n);
+        }
+        this.vehicle_of = new int[n];
+        this.pickup_positions = new int[n];
+        this.delivery_positions = new int[n];
+        this.dont_look = new boolean[n];
+        this.dont_look_versions = new long[n];
+        this.active_vehicles = new boolean[num_vehicles];
+    }
+
+    Solution Solution() {
+        return A;
+    }
+
+    // Apply the best improving move of all the neighbourhoods. Returns false, leaving the solution unchanged, if there
+    // is none: the solution is a local optimum for the tasks that are not skipped
+    boolean ApplyBestMove() {
+        Scan();
+        if (best_move == NONE) {
+            return false;
+        }
+
+        switch (best_move) {
+            case RELOCATE:
+                A.RemoveFromPlan(best_vid_i, best_t1);
+                if (best_vid_i != best_vid_j) {
+                    A.MoveInTaskLists(best_t1, best_vid_i, best_vid_j);
+                }
+                A.InsertInPlan(best_vid_j, best_t1, best_pickup, best_delivery);
+                break;
+            case EXCHANGE:
+                A.RemoveFromPlan(best_vid_i, best_t1);
+                A.RemoveFromPlan(best_vid_j, best_t2);
+                A.MoveInTaskLists(best_t1, best_vid_i, best_vid_j);
+                A.MoveInTaskLists(best_t2, best_vid_j, best_vid_i);
+                A.InsertInPlan(best_vid_i, best_t2, best_pickup2, best_delivery2);
+                A.InsertInPlan(best_vid_j, best_t1, best_pickup, best_delivery);
+                break;
+            case TWO_OPT:
+                A.ReverseActions(best_vid_i, best_first, best_last);
+                A.SetVehicleCost(best_vid_i, A.vehicleCosts[best_vid_i] + best_delta);
+                break;
+            case OR_OPT:
+                // best_first..best_last is the block, best_pickup the number of other actions before it afterwards
+                int[] block = block_buffer;
+                int length = best_last - best_first + 1;
+                for (int k = length - 1; k >= 0; k--) {
+                    block[k] = A.plans[best_vid_i][best_first + k];
+                    A.RemoveAction(best_vid_i, best_first + k);
+                }
+                for (int k = 0; k < length; k++) {
+                    A.InsertAction(best_vid_i, best_pickup + k, block[k]);
+                }
+                A.SetVehicleCost(best_vid_i, A.vehicleCosts[best_vid_i] + best_delta);
+                break;
+        }
+        return true;
+    }
+
+
+
+// SCAN OF THE NEIGHBOURHOODS
+
+    private void Scan() {
+        best_move = NONE;
+        best_delta = -EPSILON;
+        Summarise();
+
+        for (int vid = 0; vid < num_vehicles; vid++) {
+            active_vehicles[vid] = false;
+            for (int i = 0; i < A.taskListSizes[vid]; i++) {
+                if (!Skipped(A.taskLists[vid][i])) {
+                    active_vehicles[vid] = true;
+                }
+            }
+        }
+
+        for (int vid_i = 0; vid_i < num_vehicles; vid_i++) {
+            for (int i = 0; i < A.taskListSizes[vid_i]; i++) {
+                int t = A.taskLists[vid_i][i];
+                if (Skipped(t)) {
+                    continue;
+                }
+
+                task_improves = false;
+                ScanRelocate(t);
+                ScanExchange(t);
+
+                // no improving move for this task, skip it until its vehicle changes
+                dont_look[t] = !task_improves;
+                dont_look_versions[t] = A.versions[vid_i];
+            }
+        }
+
+        for (int vid = 0; vid < num_vehicles; vid++) {
+            if (active_vehicles[vid]) {
+                ScanTwoOpt(vid);
+                ScanOrOpt(vid);
+            }
+        }
+    }
+
+    private boolean Skipped(int t) {
+        return dont_look[t] && dont_look_versions[t] == A.versions[vehicle_of[t]];
+    }
+
+    // A move of the task being scanned changes the cost by delta, is it the best move so far?
+    private boolean Improves(double delta) {
+        if (delta < -EPSILON) {
+            task_improves = true;
+        }
+        return delta < best_delta;
+    }
+
+    // Moves of the task being scanned that cost at least this can be skipped: they are not the best move, and the
+    // task is already known to improve or they do not improve either
+    private double Bound() {
+        return task_improves ? best_delta : -EPSILON;
+    }
+
+    // Relocate t to every vehicle, at its best place
+    private void ScanRelocate(int t) {
+        int vid_i = vehicle_of[t];
+        double removal = -A.ActionsDelta(vid_i, pickup_positions[t], delivery_positions[t]);
+
+        for (int vid_j = 0; vid_j < num_vehicles; vid_j++) {
+            PlanSummary target = vid_j == vid_i ? without_summaries[t] : plan_summaries[vid_j];
+            double insertion = target.BestInsertion(A, vid_j, t);
+            double delta = removal + insertion;
+            if (Improves(delta)) {
+                best_move = RELOCATE;
+                best_delta = delta;
+                best_t1 = t;
+                best_vid_i = vid_i;
+                best_vid_j = vid_j;
+                best_pickup = target.insertion_pickup;
+                best_delivery = target.insertion_delivery;
+            }
+        }
+    }
+
+    // Exchange t with every task of another vehicle, each at its best place
+    private void ScanExchange(int t1) {
+        int vid_i = vehicle_of[t1];
+        double removal1 = -A.ActionsDelta(vid_i, pickup_positions[t1], delivery_positions[t1]);
+
+        for (int vid_j = 0; vid_j < num_vehicles; vid_j++) {
+            if (vid_j == vid_i || A.capacities[vid_j] < table.weights[t1]) {
+                continue;
+            }
+            for (int j = 0; j < A.taskListSizes[vid_j]; j++) {
+                int t2 = A.taskLists[vid_j][j];
+                double removal2 = -A.ActionsDelta(vid_j, pickup_positions[t2], delivery_positions[t2]);
+                if (removal1 + removal2 >= Bound()) {
+                    continue;	// the insertions cost at least 0
+                }
+
+                double insertion1 = without_summaries[t2].BestInsertion(A, vid_j, t1);
+                int pickup1 = without_summaries[t2].insertion_pickup;
+                int delivery1 = without_summaries[t2].insertion_delivery;
+                if (removal1 + removal2 + insertion1 >= Bound()) {
+                    continue;
+                }
+                double insertion2 = without_summaries[t1].BestInsertion(A, vid_i, t2);
+
+                double delta = removal1 + removal2 + insertion1 + insertion2;
+                if (Improves(delta)) {
+                    best_move = EXCHANGE;
+                    best_delta = delta;
+                    best_t1 = t1;
+                    best_t2 = t2;
+                    best_vid_i = vid_i;
+                    best_vid_j = vid_j;
+                    best_pickup = pickup1;
+                    best_delivery = delivery1;
+                    best_pickup2 = without_summaries[t1].insertion_pickup;
+                    best_delivery2 = without_summaries[t1].insertion_delivery;
+                }
+            }
+        }
+    }
+
+    // Reverse every segment of actions a..b of the plan holding no complete task and keeping the loads under capacity
+    private void ScanTwoOpt(int vid) {
+        PlanSummary plan = plan_summaries[vid];
+        int[] actions = A.plans[vid];
+        int n = plan.n;
+        int capacity = A.capacities[vid];
+
+        for (int a = 0; a < n - 1; a++) {
+            // max_suffix = max over k in a..b of the load change of actions k..b, i.e. the loads of the reversed segment
+            // above the load before it
+            int max_suffix = table.LoadChange(actions[a]);
+            for (int b = a + 1; b < n; b++) {
+                int action = actions[b];
+                if (!TaskTable.IsPickup(action) && pickup_positions[TaskTable.TaskOf(action)] >= a) {
+                    break;	// the task is complete in the segment, and in every longer one
+                }
+                int change = table.LoadChange(action);
+                max_suffix = Math.max(max_suffix + change, change);
+                if (plan.loads[a] + max_suffix > capacity) {
+                    continue;
+                }
+
+                // cities before and after the segment: cities[a] and cities[b + 2]
+                double delta = A.topology.distance(plan.cities[a], plan.cities[b + 1])
+                        - A.topology.distance(plan.cities[a], plan.cities[a + 1]);
+                if (b + 1 < n) {
+                    delta += A.topology.distance(plan.cities[a + 1], plan.cities[b + 2])
+                            - A.topology.distance(plan.cities[b + 1], plan.cities[b + 2]);
+                }
+                delta *= A.costsPerKm[vid];
+                if (delta < best_delta) {
+                    best_move = TWO_OPT;
+                    best_delta = delta;
+                    best_vid_i = vid;
+                    best_first = a;
+                    best_last = b;
+                }
+            }
+        }
+    }
+
+    // Move every block of 2 or 3 consecutive actions to every other place of the plan where its pickups stay before
+    // their deliveries and the loads under capacity
+    private void ScanOrOpt(int vid) {
+        PlanSummary plan = plan_summaries[vid];
+        int[] actions = A.plans[vid];
+        int n = plan.n;
+
+        for (int length = 2; length <= MAX_BLOCK; length++) {
+            for (int a = 0; a + length <= n; a++) {
+                int last = a + length - 1;
+
+                // The block goes after g actions of the plan without it, g in [lowest, highest]
+                int lowest = 0;
+                int highest = n - length;
+                int block_change = 0;
+                for (int k = a; k <= last; k++) {
+                    int t = TaskTable.TaskOf(actions[k]);
+                    if (TaskTable.IsPickup(actions[k])) {
+                        if (delivery_positions[t] > last)
+                            highest = Math.min(highest, delivery_positions[t] - length);
+                    }
+                    else if (pickup_positions[t] < a) {
+                        lowest = Math.max(lowest, pickup_positions[t] + 1);
+                    }
+                    block_change += table.LoadChange(actions[k]);
+                }
+
+                // km saved by taking the block out, its own edges are kept
+                double removal = -(plan.km[a + 1] - plan.km[a]);
+                if (last + 1 < n) {
+                    removal += A.topology.distance(plan.cities[a], plan.cities[last + 2])
+                            - (plan.km[last + 2] - plan.km[last + 1]);
+                }
+
+                for (int g = lowest; g <= highest; g++) {
+                    if (g == a) {
+                        continue;	// same place
+                    }
+                    // cities around the gap, in the plan without the block
+                    int previous = plan.cities[g <= a ? g : g + length];
+                    boolean has_next = g < n - length;
+                    int next = has_next ? plan.cities[g < a ? g + 1 : g + length + 1] : -1;
+
+                    double insertion = A.topology.distance(previous, plan.cities[a + 1]);
+                    if (has_next) {
+                        insertion += A.topology.distance(plan.cities[last + 1], next)
+                                - A.topology.distance(previous, next);
+                    }
+                    double delta = (removal + insertion) * A.costsPerKm[vid];
+                    if (delta < best_delta && OrOptFeasible(vid, a, last, g, block_change)) {
+                        best_move = OR_OPT;
+                        best_delta = delta;
+                        best_vid_i = vid;
+                        best_first = a;
+                        best_last = last;
+                        best_pickup = g;
+                    }
+                }
+            }
+        }
+    }
+
+    // Loads stay under capacity when the block a..last goes after g actions of the plan without it
+    private boolean OrOptFeasible(int vid, int a, int last, int g, int block_change) {
+        PlanSummary plan = plan_summaries[vid];
+        int[] actions = A.plans[vid];
+        int capacity = A.capacities[vid];
+        int length = last - a + 1;
+
+        if (g < a) {
+            // the block comes earlier: the actions g..a-1 are done with the block on board
+            int load = plan.loads[g];
+            for (int k = a; k <= last; k++) {
+                load += table.LoadChange(actions[k]);
+                if (load > capacity) return false;
+            }
+            for (int k = g; k < a; k++) {
+                if (plan.loads[k + 1] + block_change > capacity) return false;
+            }
+        }
+        else {
+            // the block comes later: the actions last+1..g+length-1 are done without it
+            for (int k = last + 1; k < g + length; k++) {
+                if (plan.loads[k + 1] - block_change > capacity) return false;
+            }
+            int load = plan.loads[g + length] - block_change;
+            for (int k = a; k <= last; k++) {
+                load += table.LoadChange(actions[k]);
+                if (load > capacity) return false;
+            }
+        }
+        return true;
+    }
+
+
+
+// SUMMARIES AND INSERTION
+
+    // Summaries of the plans, and of the plan of each task without it
+    private void Summarise() {
+        for (int vid = 0; vid < num_vehicles; vid++) {
+            int[] actions = A.plans[vid];
+            int n = A.planSizes[vid];
+            for (int k = 0; k < n; k++) {
+                int t = TaskTable.TaskOf(actions[k]);
+                vehicle_of[t] = vid;
+                if (TaskTable.IsPickup(actions[k]))
+                    pickup_positions[t] = k;
+                else
+                    delivery_positions[t] = k;
+            }
+            plan_summaries[vid].Summarise(A, vid, -1);
+            for (int i = 0; i < A.taskListSizes[vid]; i++) {
+                int t = A.taskLists[vid][i];
+                without_summaries[t].Summarise(A, vid, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package centralized;
+
+import java.util.List;
+
+import logist.simulation.Vehicle;
+import logist.task.Task;
+
+// Search engine for the plans of a set of vehicles: SLS (CentralizedTemplate) or ALNS
+public interface PlanSearch {
+
+    // Plans of the vehicles, in their order, carrying all the tasks. The search starts from A, or from a constructed
+    // solution if it is null, and returns after timeout ms
+    List<List<PD_Action>> Search(List<Vehicle> vehicles, List<Task> tasks, Candidate A, long timeout);
+}
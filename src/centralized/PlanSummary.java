@@ -0,0 +1,56 @@
+package centralized;
+
+import algorithms.CheapestInsertion;
+
+// Summary of a plan of n actions of a Solution: cities[k], loads[k] and km[k] after its k first actions, k = 0..n.
+// Inserting a task in it is costed in O(1) per pair of positions, with the scan of CheapestInsertion. Used by
+// LocalSearch and ALNS
+class PlanSummary {
+    final int[] cities;
+    final int[] loads;
+    final double[] km;
+    int n;
+
+    // Result of BestInsertion: positions of the pickup and the delivery in the resulting plan
+    int insertion_pickup;
+    int insertion_delivery;
+    private final int[] positions = new int[2];	// of the scan, in the plan without the task
+
+    PlanSummary(int max_actions) {
+        cities = new int[max_actions + 1];
+        loads = new int[max_actions + 1];
+        km = new double[max_actions + 1];
+    }
+
+    // Summarise the plan of the vehicle, without the actions of a task (-1 to keep them all)
+    void Summarise(Solution A, int vid, int without) {
+        int[] actions = A.plans[vid];
+        cities[0] = A.startCities[vid];
+        loads[0] = 0;
+        km[0] = 0;
+        int m = 0;
+        for (int k = 0; k < A.planSizes[vid]; k++) {
+            int action = actions[k];
+            if (TaskTable.TaskOf(action) == without) {
+                continue;
+            }
+            int city = A.table.CityOf(action);
+            cities[m + 1] = city;
+            loads[m + 1] = loads[m] + A.table.LoadChange(action);
+            km[m + 1] = km[m] + A.topology.distance(cities[m], city);
+            m++;
+        }
+        n = m;
+    }
+
+    // Cost of the cheapest feasible insertion of t in the summarised plan of the vehicle (infinity if there is none),
+    // its positions in the resulting plan are left in insertion_pickup and insertion_delivery
+    double BestInsertion(Solution A, int vid, int t) {
+        TaskTable table = A.table;
+        double km_added = CheapestInsertion.bestInsertion(A.topology, cities, loads, km, n, table.pickupCities[t],
+                table.deliveryCities[t], A.capacities[vid] - table.weights[t], positions);
+        insertion_pickup = positions[0];
+        insertion_delivery = positions[1] + 1;	// the pickup comes before it
+        return km_added * A.costsPerKm[vid];
+    }
+}
@@ -0,0 +1,50 @@
+package centralized;
+
+import java.util.random.RandomGenerator;
+
+// Simulated annealing over the best neighbour: an improving neighbour is always taken, a worse one with probability
+// exp(-delta / T). The temperature starts at a share of the initial cost and goes down linearly to 0 at the deadline,
+// so the walk explores at the beginning of the time window and only improves at its end.
+public class SimulatedAnnealing implements Acceptance {
+    private final double initial_temperature_share; // initial temperature, as a share of the cost of the initial solution
+    private double initial_temperature;
+    private long time_start;
+    private long deadline;
+
+    public SimulatedAnnealing(double initial_temperature_share) {
+        this.initial_temperature_share = initial_temperature_share;
+    }
+
+    @Override
+    public void Start(Solution A, long deadline) {
+        this.initial_temperature = initial_temperature_share * A.Cost();
+        this.time_start = System.currentTimeMillis();
+        this.deadline = deadline;
+    }
+
+    // Temperature for the time left until the deadline
+    private double Temperature() {
+        long duration = Math.max(1, deadline - time_start);
+        long remaining = Math.max(0, deadline - System.currentTimeMillis());
+        return initial_temperature * remaining / duration;
+    }
+
+    @Override
+    public void LocalChoice(Solution A, RandomGenerator random, double best_cost) {
+        double neighbour_cost = A.ChooseNeighbours(random, this);
+        if (neighbour_cost == Double.POSITIVE_INFINITY) {
+            return;
+        }
+
+        double delta = neighbour_cost - A.Cost();
+        if (delta <= 0) {
+            A.ApplyChosenNeighbour();
+            return;
+        }
+
+        double temperature = Temperature();
+        if (temperature > 0 && random.nextDouble() < Math.exp(-delta / temperature)) {
+            A.ApplyChosenNeighbour();
+        }
+    }
+}
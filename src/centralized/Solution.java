@@ -0,0 +1,559 @@
+package centralized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import datastructures.TopologyIndex;
+import logist.simulation.Vehicle;
+import logist.task.Task;
+
+
+// The Solution class is the working copy of a candidate used by the SLS loop. Moves change its plans and task lists in
+// place and every change is written to an undo log, so a neighbour is evaluated by applying the move, reading the cost
+// and rolling back to a mark, without copying anything. Candidate stays the immutable snapshot: a copy is only made
+// when the SLS finds a new best solution.
+// Plans and task lists are primitive arrays, with the actions encoded as in TaskTable, sized once for all the tasks.
+
+public class Solution {
+
+    public final List<Vehicle> vehicles;	// list of vehicles
+    final TaskTable table;	// tasks of the problem and their attributes
+    final int[][] plans;	// encoded plan of each vehicle, changed in place
+    final int[] planSizes;	// number of actions in each plan
+    final int[][] taskLists;	// task indices of each vehicle, changed in place
+    final int[] taskListSizes;	// number of tasks of each vehicle
+    final int[] capacities;	// capacity of each vehicle
+    final int[] startCities;	// city id where each vehicle starts
+    final int[] costsPerKm;	// cost per km of each vehicle
+    final double[] vehicleCosts;	// cost of the plan of each vehicle
+    private double cost;	// cost of all the plans
+    final TopologyIndex topology;
+    final long[] versions;	// changes each time the plan of a vehicle changes, and is restored on rollback
+    private long last_version = 0;
+
+    // Undo log: one entry per elementary change, stored in parallel arrays that only grow
+    private static final int PLAN_INSERT = 0;
+    private static final int PLAN_REMOVE = 1;
+    private static final int TASK_INSERT = 2;
+    private static final int TASK_REMOVE = 3;
+    private static final int VEHICLE_COST = 4;
+    private static final int TOTAL_COST = 5;
+    private static final int PLAN_REVERSE = 6;
+    private int[] logOperations = new int[64];
+    private int[] logVehicles = new int[64];
+    private int[] logPositions = new int[64];
+    private int[] logItems = new int[64];	// action or task index removed
+    private double[] logValues = new double[64];	// cost replaced, or version of the plan replaced
+    private int logSize = 0;
+
+    // Last move applied by Relocate, read back by ChooseNeighbours to remember the best one
+    private int moved_task;
+    private int moved_task_id;
+    private int moved_vid_i;
+    private int moved_vid_j;
+    private int moved_pickup;
+    private int moved_delivery;
+
+    // Best neighbour found by ChooseNeighbours
+    private int best_task;
+    private int best_task_id;
+    private int best_vid_i;
+    private int best_vid_j;
+    private int best_pickup;
+    private int best_delivery;
+
+    // Load windows of a task, see LoadWindows
+    private final int[] window_loads;
+    private final int[] window_ends;
+    private final int[] window_pickups;
+    private int window_count;
+
+
+
+    public Solution(Candidate A) {
+        this(A, new TaskTable(A));
+    }
+
+    // Working copy of a candidate whose tasks are all in the table
+    public Solution(Candidate A, TaskTable table) {
+        this.vehicles = A.vehicles;
+        this.table = table;
+        int num_vehicles = vehicles.size();
+        this.plans = new int[num_vehicles][2 * table.Size()];
+        this.planSizes = new int[num_vehicles];
+        this.taskLists = new int[num_vehicles][table.Size()];
+        this.taskListSizes = new int[num_vehicles];
+        this.capacities = new int[num_vehicles];
+        this.startCities = new int[num_vehicles];
+        this.costsPerKm = new int[num_vehicles];
+        this.vehicleCosts = new double[num_vehicles];
+        this.versions = new long[num_vehicles];
+        this.window_loads = new int[2 * table.Size() + 1];
+        this.window_ends = new int[2 * table.Size() + 1];
+        this.window_pickups = new int[2 * table.Size() + 1];
+        for (int vid = 0; vid < num_vehicles; vid++) {
+            Vehicle v = vehicles.get(vid);
+            table.Encode(A.plans.get(vid), plans[vid]);
+            planSizes[vid] = A.plans.get(vid).size();
+            List<Task> vehicle_tasks = A.taskLists.get(vid);
+            for (int i = 0; i < vehicle_tasks.size(); i++) {
+                taskLists[vid][i] = table.IndexOf(vehicle_tasks.get(i));
+            }
+            taskListSizes[vid] = vehicle_tasks.size();
+            capacities[vid] = v.capacity();
+            startCities[vid] = v.getCurrentCity().id;
+            costsPerKm[vid] = v.costPerKm();
+            vehicleCosts[vid] = A.VehicleCost(vid);
+            cost += vehicleCosts[vid];
+        }
+        this.topology = TopologyIndex.of(vehicles.get(0).getCurrentCity());
+    }
+
+    public double Cost() {
+        return cost;
+    }
+
+    // Copy of the current plans as a candidate
+    public Candidate ToCandidate() {
+        List<List<PD_Action>> plans_copy = new ArrayList<>();
+        List<List<Task>> taskLists_copy = new ArrayList<>();
+        for (int vid = 0; vid < vehicles.size(); vid++) {
+            plans_copy.add(table.Decode(plans[vid], planSizes[vid]));
+            List<Task> vehicle_tasks = new ArrayList<>(taskListSizes[vid]);
+            for (int i = 0; i < taskListSizes[vid]; i++) {
+                vehicle_tasks.add(table.tasks[taskLists[vid][i]]);
+            }
+            taskLists_copy.add(vehicle_tasks);
+        }
+        return new Candidate(vehicles, plans_copy, taskLists_copy, cost);
+    }
+
+
+
+
+// MAIN OPERATIONS: Choose neighbours, apply the chosen one
+
+    // Evaluate the neighbours of the solution and remember the cheapest one the acceptance strategy allows (all of them
+    // if it is null). The solution is left unchanged, the returned value is the cost of the chosen neighbour (infinity
+    // if there is no neighbour)
+    public double ChooseNeighbours(RandomGenerator random, Acceptance acceptance) {
+
+        double best_cost = Double.POSITIVE_INFINITY;
+        int mark = Mark();
+
+
+        // 1 - NEIGHBOURS BY CHANGING VEHICLES OF TASKS
+
+        int num_vehicles = vehicles.size();
+
+        if (num_vehicles > 1) {
+            // Loop over all source vehicle ids
+            for (int vid_i = 0; vid_i < num_vehicles; vid_i++) {
+
+                int num_tasks = taskListSizes[vid_i];	// Get number of tasks of the vehicle
+
+                // Pass if the vehicle is empty
+                if (num_tasks == 0) {
+                    continue;
+                }
+
+                // Get the first task of the vehicle
+                int task_id = 0;
+                double task_weight = table.weights[taskLists[vid_i][task_id]];	// Get task weight
+
+                // Randomly choose another suitable vehicle
+                int vid_j = random.nextInt(num_vehicles);
+                // Loop until finding a suitable vehicle
+                while (vid_i == vid_j || capacities[vid_j] < task_weight) {
+                    vid_j = random.nextInt(num_vehicles);
+                }
+
+                // Try the change of t from vehicle i to vehicle j
+                ChangingVehicle(task_id, vid_i, vid_j);
+                if (cost < best_cost && Allowed(acceptance)) {
+                    best_cost = cost;
+                    RememberMove();
+                }
+                Rollback(mark);
+            }
+        }
+
+
+        // 2 - NEIGHBOURS BY CHANGING TASK ORDERS
+
+        // Loop over all source vehicle ids
+        for (int vid_i = 0; vid_i < num_vehicles; vid_i++) {
+
+            int num_tasks = taskListSizes[vid_i];	// Get number of tasks of the vehicle
+
+            // Pass if the vehicle has less than two tasks
+            if (num_tasks < 2) {
+                continue;
+            }
+
+            // Get a task from the vehicle randomly
+            int task_id;
+            if (num_vehicles > 1)
+                task_id = random.nextInt(num_tasks);
+            // last task will be the inserted one
+            else
+                task_id = num_tasks - 1;
+
+            // Try changing the position of pickup and delivery actions of the task
+            LoadWindows(vid_i, taskLists[vid_i][task_id]);
+            for (int i = 0; i < 10 && window_count > 0; i++) {
+                SampleTaskOrder(random, task_id, vid_i);
+                if (cost < best_cost && Allowed(acceptance)) {
+                    best_cost = cost;
+                    RememberMove();
+                }
+                Rollback(mark);
+            }
+        }
+
+        return best_cost;
+    }
+
+    // Apply the neighbour chosen by the last call to ChooseNeighbours
+    public void ApplyChosenNeighbour() {
+        Relocate(best_task_id, best_vid_i, best_vid_j, best_pickup, best_delivery);
+    }
+
+    // Task moved by the neighbour chosen by the last call to ChooseNeighbours
+    public Task ChosenTask() {
+        return table.tasks[best_task];
+    }
+
+    private boolean Allowed(Acceptance acceptance) {
+        return acceptance == null || acceptance.Allows(table.tasks[moved_task], cost);
+    }
+
+    private void RememberMove() {
+        best_task = moved_task;
+        best_task_id = moved_task_id;
+        best_vid_i = moved_vid_i;
+        best_vid_j = moved_vid_j;
+        best_pickup = moved_pickup;
+        best_delivery = moved_delivery;
+    }
+
+
+
+
+// VEHICLE AND TASK ORDER CHANGE OPERATORS
+
+    // Move the task to the beginning of the plan of vehicle j
+    public void ChangingVehicle(int task_id, int vid_i, int vid_j) {
+        // note that we don't need to check the weight since the vehicle is free initially (assuming capacity is sufficient)
+        Relocate(task_id, vid_i, vid_j, 0, 1);
+    }
+
+    // Randomly change the place of pickup and delivery actions of one of the tasks in a given vehicle, considering the constraints
+    public void ChangingTaskOrder(RandomGenerator random, int task_id, int vid_i) {
+        LoadWindows(vid_i, taskLists[vid_i][task_id]);
+        if (window_count > 0) {	// no window only if the task is heavier than the vehicle capacity
+            SampleTaskOrder(random, task_id, vid_i);
+        }
+    }
+
+    // Move a random task to a random vehicle that can carry it (possibly its own), at a random feasible place of its plan
+    public void RandomMove(RandomGenerator random) {
+        if (table.Size() == 0) {
+            return;
+        }
+        int num_vehicles = vehicles.size();
+        int vid_i = random.nextInt(num_vehicles);
+        while (taskListSizes[vid_i] == 0) {
+            vid_i = random.nextInt(num_vehicles);
+        }
+        int task_id = random.nextInt(taskListSizes[vid_i]);
+        int vid_j = random.nextInt(num_vehicles);
+        while (capacities[vid_j] < table.weights[taskLists[vid_i][task_id]]) {
+            vid_j = random.nextInt(num_vehicles);
+        }
+
+        if (vid_j != vid_i) {
+            ChangingVehicle(task_id, vid_i, vid_j);
+            task_id = taskListSizes[vid_j] - 1;	// moved to the end of the task list of j
+        }
+        ChangingTaskOrder(random, task_id, vid_j);
+    }
+
+    // Same as ChangingTaskOrder, with the load windows of the task already computed by LoadWindows
+    private void SampleTaskOrder(RandomGenerator random, int task_id, int vid_i) {
+        // pick a random feasible pickup location, then a delivery location in its window
+        int pickup = window_pickups[random.nextInt(window_count)];
+        int delivery = pickup + random.nextInt(window_ends[pickup] - pickup);
+
+        // the delivery comes after `delivery` actions of the plan without the task, so one more with the pickup
+        Relocate(task_id, vid_i, vid_i, pickup, delivery + 1);
+    }
+
+    // Feasible places of a task in the plan of its vehicle, for SampleTaskOrder. In the plan without the task,
+    // window_loads[k] is the load after its k first actions. Picking the task up after a actions and delivering it after
+    // b >= a actions is feasible iff the load stays under capacity - weight for all k in [a, b], so a is a feasible
+    // pickup iff window_loads[a] is, and then any b below window_ends[a] (the first k >= a where it is not) works.
+    // O(n) once, then every position is drawn in O(1) instead of retrying random ones until the weights fit
+    private void LoadWindows(int vid, int t) {
+        int[] plan = plans[vid];
+        int limit = capacities[vid] - table.weights[t];
+
+        int m = 0;	// number of actions without the task
+        window_loads[0] = 0;
+        for (int act_ind = 0; act_ind < planSizes[vid]; act_ind++) {
+            if (TaskTable.TaskOf(plan[act_ind]) != t) {
+                window_loads[m + 1] = window_loads[m] + table.LoadChange(plan[act_ind]);
+                m++;
+            }
+        }
+
+        int blocked = m + 1;
+        window_count = 0;
+        for (int k = m; k >= 0; k--) {
+            if (window_loads[k] > limit) {
+                blocked = k;
+            }
+            else {
+                window_pickups[window_count++] = k;
+            }
+            window_ends[k] = blocked;
+        }
+    }
+
+    // Move a task of vehicle i to vehicle j (possibly the same), its pickup and delivery actions ending at positions
+    // pickup < delivery of the plan of j. The costs are updated from the cities around the changed positions only
+    public void Relocate(int task_id, int vid_i, int vid_j, int pickup, int delivery) {
+
+        int t = taskLists[vid_i][task_id];
+
+        // 1 - Remove the task from vehicle i
+        RemoveFromPlan(vid_i, t);
+
+        // 2 - Update the task lists if the vehicle changes
+        if (vid_i != vid_j) {
+            RemoveTask(vid_i, task_id);
+            InsertTask(vid_j, taskListSizes[vid_j], t);
+        }
+
+        // 3 - Insert the task in vehicle j
+        InsertInPlan(vid_j, t, pickup, delivery);
+
+        moved_task = t;
+        moved_task_id = task_id;
+        moved_vid_i = vid_i;
+        moved_vid_j = vid_j;
+        moved_pickup = pickup;
+        moved_delivery = delivery;
+    }
+
+
+
+
+    // Remove the pickup and delivery actions of a task from the plan of the vehicle, updating its cost
+    void RemoveFromPlan(int vid, int t) {
+        int pickup = ActionPosition(vid, TaskTable.Pickup(t));
+        int delivery = ActionPosition(vid, TaskTable.Delivery(t));
+        SetVehicleCost(vid, vehicleCosts[vid] - ActionsDelta(vid, pickup, delivery));
+        RemoveAction(vid, delivery);
+        RemoveAction(vid, pickup);
+    }
+
+    // Insert the pickup and delivery actions of a task in the plan of the vehicle, at positions pickup < delivery of the
+    // resulting plan, updating its cost
+    void InsertInPlan(int vid, int t, int pickup, int delivery) {
+        InsertAction(vid, pickup, TaskTable.Pickup(t));
+        InsertAction(vid, delivery, TaskTable.Delivery(t));
+        SetVehicleCost(vid, vehicleCosts[vid] + ActionsDelta(vid, pickup, delivery));
+    }
+
+    // Move a task from the task list of vehicle i to the end of the one of vehicle j
+    void MoveInTaskLists(int t, int vid_i, int vid_j) {
+        for (int i = 0; i < taskListSizes[vid_i]; i++) {
+            if (taskLists[vid_i][i] == t) {
+                RemoveTask(vid_i, i);
+                break;
+            }
+        }
+        InsertTask(vid_j, taskListSizes[vid_j], t);
+    }
+
+
+
+
+// DELTA COST HELPERS
+// Positions are indices of actions in a plan, -1 being the starting city of the vehicle.
+
+    // City id of the action at a position of the plan of the vehicle
+    int CityAt(int vid, int position) {
+        return position < 0 ? startCities[vid] : table.CityOf(plans[vid][position]);
+    }
+
+    // Cost added to the plan of the vehicle by the actions at positions pickup < delivery, compared to the same plan
+    // without them. Removing the actions changes the cost by minus this value
+    double ActionsDelta(int vid, int pickup, int delivery) {
+        int n = planSizes[vid];
+        int pickup_city = CityAt(vid, pickup);
+        int delivery_city = CityAt(vid, delivery);
+        int previous = CityAt(vid, pickup - 1);
+        double delta;
+
+        if (delivery == pickup + 1) {
+            // the two actions are a block between the previous and the next city
+            delta = topology.distance(previous, pickup_city) + topology.distance(pickup_city, delivery_city);
+            if (delivery + 1 < n) {
+                int next = CityAt(vid, delivery + 1);
+                delta += topology.distance(delivery_city, next) - topology.distance(previous, next);
+            }
+        }
+        else {
+            // each action is a detour of its own, there is at least one action in between
+            int next = CityAt(vid, pickup + 1);
+            delta = topology.distance(previous, pickup_city) + topology.distance(pickup_city, next)
+                    - topology.distance(previous, next);
+            previous = CityAt(vid, delivery - 1);
+            delta += topology.distance(previous, delivery_city);
+            if (delivery + 1 < n) {
+                next = CityAt(vid, delivery + 1);
+                delta += topology.distance(delivery_city, next) - topology.distance(previous, next);
+            }
+        }
+        return delta * costsPerKm[vid];
+    }
+
+    // Position of an action in the plan of the vehicle
+    int ActionPosition(int vid, int action) {
+        int[] plan = plans[vid];
+        for (int act_ind = 0; act_ind < planSizes[vid]; act_ind++) {
+            if (plan[act_ind] == action) {
+                return act_ind;
+            }
+        }
+        return -1;
+    }
+
+
+
+
+// UNDO LOG
+// Every change of the plans, task lists or costs goes through these functions, which log how to undo it.
+
+    // Current position in the undo log, to roll back to later
+    public int Mark() {
+        return logSize;
+    }
+
+    // Undo every change made since the mark, latest first
+    public void Rollback(int mark) {
+        while (logSize > mark) {
+            logSize--;
+            int vid = logVehicles[logSize];
+            int position = logPositions[logSize];
+            switch (logOperations[logSize]) {
+                case PLAN_INSERT:
+                    Remove(plans[vid], planSizes[vid]--, position);
+                    versions[vid] = (long) logValues[logSize];
+                    break;
+                case PLAN_REMOVE:
+                    Insert(plans[vid], planSizes[vid]++, position, logItems[logSize]);
+                    versions[vid] = (long) logValues[logSize];
+                    break;
+                case PLAN_REVERSE:
+                    Reverse(plans[vid], position, logItems[logSize]);
+                    versions[vid] = (long) logValues[logSize];
+                    break;
+                case TASK_INSERT:
+                    Remove(taskLists[vid], taskListSizes[vid]--, position);
+                    break;
+                case TASK_REMOVE:
+                    Insert(taskLists[vid], taskListSizes[vid]++, position, logItems[logSize]);
+                    break;
+                case VEHICLE_COST:
+                    vehicleCosts[vid] = logValues[logSize];
+                    break;
+                case TOTAL_COST:
+                    cost = logValues[logSize];
+                    break;
+            }
+        }
+    }
+
+    // Forget the undo log: the changes made until now are kept for good
+    public void Commit() {
+        logSize = 0;
+    }
+
+    void InsertAction(int vid, int position, int action) {
+        Insert(plans[vid], planSizes[vid]++, position, action);
+        Log(PLAN_INSERT, vid, position, 0, versions[vid]);
+        versions[vid] = ++last_version;
+    }
+
+    void RemoveAction(int vid, int position) {
+        Log(PLAN_REMOVE, vid, position, Remove(plans[vid], planSizes[vid]--, position), versions[vid]);
+        versions[vid] = ++last_version;
+    }
+
+    // Reverse the actions at positions first..last of the plan of the vehicle. The cost is left to the caller
+    void ReverseActions(int vid, int first, int last) {
+        Reverse(plans[vid], first, last);
+        Log(PLAN_REVERSE, vid, first, last, versions[vid]);
+        versions[vid] = ++last_version;
+    }
+
+    private void InsertTask(int vid, int position, int t) {
+        Insert(taskLists[vid], taskListSizes[vid]++, position, t);
+        Log(TASK_INSERT, vid, position, 0, 0);
+    }
+
+    private void RemoveTask(int vid, int position) {
+        Log(TASK_REMOVE, vid, position, Remove(taskLists[vid], taskListSizes[vid]--, position), 0);
+    }
+
+    void SetVehicleCost(int vid, double vehicle_cost) {
+        Log(VEHICLE_COST, vid, 0, 0, vehicleCosts[vid]);
+        Log(TOTAL_COST, vid, 0, 0, cost);
+        cost += vehicle_cost - vehicleCosts[vid];
+        vehicleCosts[vid] = vehicle_cost;
+    }
+
+    // Insert a value at a position of the first size values of an array
+    private static void Insert(int[] array, int size, int position, int value) {
+        System.arraycopy(array, position, array, position + 1, size - position);
+        array[position] = value;
+    }
+
+    // Remove the value at a position of the first size values of an array, and return it
+    private static int Remove(int[] array, int size, int position) {
+        int value = array[position];
+        System.arraycopy(array, position + 1, array, position, size - position - 1);
+        return value;
+    }
+
+    // Reverse the values at positions first..last of an array
+    private static void Reverse(int[] array, int first, int last) {
+        while (first < last) {
+            int value = array[first];
+            array[first++] = array[last];
+            array[last--] = value;
+        }
+    }
+
+    private void Log(int operation, int vid, int position, int item, double value) {
+        if (logSize == logOperations.length) {
+            int length = 2 * logSize;
+            logOperations = Arrays.copyOf(logOperations, length);
+            logVehicles = Arrays.copyOf(logVehicles, length);
+            logPositions = Arrays.copyOf(logPositions, length);
+            logItems = Arrays.copyOf(logItems, length);
+            logValues = Arrays.copyOf(logValues, length);
+        }
+        logOperations[logSize] = operation;
+        logVehicles[logSize] = vid;
+        logPositions[logSize] = position;
+        logItems[logSize] = item;
+        logValues[logSize] = value;
+        logSize++;
+    }
+}
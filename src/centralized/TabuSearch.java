@@ -0,0 +1,54 @@
+package centralized;
+
+import java.util.random.RandomGenerator;
+
+import logist.task.Task;
+
+// Tabu search: always move to the best neighbour, but a task that was moved in the last tenure moves cannot be moved
+// again, unless that gives a new best solution (aspiration). This keeps the walk from undoing its last moves and going
+// around in circles on a plateau.
+public class TabuSearch implements Acceptance {
+    private final int[] tabu; // ids of the last moved tasks, as a ring buffer
+    private int next = 0;
+    private int size = 0;
+    private double best_cost = Double.POSITIVE_INFINITY;
+
+    public TabuSearch(int tenure) {
+        this.tabu = new int[tenure];
+    }
+
+    @Override
+    public void Start(Solution A, long deadline) {
+        next = 0;
+        size = 0;
+    }
+
+    @Override
+    public void LocalChoice(Solution A, RandomGenerator random, double best_cost) {
+        this.best_cost = best_cost;
+        if (A.ChooseNeighbours(random, this) == Double.POSITIVE_INFINITY) {
+            return;
+        }
+
+        Task moved = A.ChosenTask();
+        A.ApplyChosenNeighbour();
+        if (tabu.length > 0) {
+            tabu[next] = moved.id;
+            next = (next + 1) % tabu.length;
+            size = Math.min(size + 1, tabu.length);
+        }
+    }
+
+    @Override
+    public boolean Allows(Task t, double neighbour_cost) {
+        if (neighbour_cost < best_cost) {
+            return true;
+        }
+        for (int i = 0; i < size; i++) {
+            if (tabu[i] == t.id) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,135 @@
+package centralized;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import logist.task.Task;
+
+
+// Primitive encoding of the plans used inside the SLS. The tasks of a problem are numbered 0..n-1 and their attributes
+// kept in parallel arrays, and a plan is an int[] of actions: +task index for a pickup, -task index-1 for a delivery.
+// PD_Action lists are only built back at the boundary with the rest of the agent (Candidate, logist plans).
+
+public class TaskTable {
+
+    public final Task[] tasks;	// task of each index
+    public final int[] pickupCities;	// city id where each task is picked up
+    public final int[] deliveryCities;	// city id where each task is delivered
+    public final int[] weights;	// weight of each task
+    private final PD_Action[] pickupActions;	// actions to decode the plans with, the ones of the encoded plans when known
+    private final PD_Action[] deliveryActions;
+    private final IdentityHashMap<Task, Integer> indices = new IdentityHashMap<>();
+
+
+
+    // Table of the tasks of a candidate solution, from its task lists and plans
+    public TaskTable(Candidate A) {
+        List<Task> all_tasks = new ArrayList<>();
+        for (List<Task> vehicle_tasks : A.taskLists) {
+            for (Task t : vehicle_tasks) {
+                if (!indices.containsKey(t)) {
+                    indices.put(t, all_tasks.size());
+                    all_tasks.add(t);
+                }
+            }
+        }
+        for (List<PD_Action> plan : A.plans) {
+            for (PD_Action act : plan) {
+                if (!indices.containsKey(act.task)) {
+                    indices.put(act.task, all_tasks.size());
+                    all_tasks.add(act.task);
+                }
+            }
+        }
+
+        int n = all_tasks.size();
+        this.tasks = all_tasks.toArray(new Task[0]);
+        this.pickupCities = new int[n];
+        this.deliveryCities = new int[n];
+        this.weights = new int[n];
+        this.pickupActions = new PD_Action[n];
+        this.deliveryActions = new PD_Action[n];
+        for (int i = 0; i < n; i++) {
+            pickupCities[i] = tasks[i].pickupCity.id;
+            deliveryCities[i] = tasks[i].deliveryCity.id;
+            weights[i] = tasks[i].weight;
+        }
+        for (List<PD_Action> plan : A.plans) {
+            for (PD_Action act : plan) {
+                if (act.is_pickup)
+                    pickupActions[indices.get(act.task)] = act;
+                else
+                    deliveryActions[indices.get(act.task)] = act;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (pickupActions[i] == null)
+                pickupActions[i] = new PD_Action(true, tasks[i]);
+            if (deliveryActions[i] == null)
+                deliveryActions[i] = new PD_Action(false, tasks[i]);
+        }
+    }
+
+    public int Size() {
+        return tasks.length;
+    }
+
+    public int IndexOf(Task t) {
+        return indices.get(t);
+    }
+
+
+
+// ACTION ENCODING
+
+    public static int Pickup(int task) {
+        return task;
+    }
+
+    public static int Delivery(int task) {
+        return -task - 1;
+    }
+
+    public static boolean IsPickup(int action) {
+        return action >= 0;
+    }
+
+    // Index of the task of an action
+    public static int TaskOf(int action) {
+        return action >= 0 ? action : -action - 1;
+    }
+
+    // City id where the action takes place
+    public int CityOf(int action) {
+        return action >= 0 ? pickupCities[action] : deliveryCities[-action - 1];
+    }
+
+    // Change of the carried weight after the action
+    public int LoadChange(int action) {
+        return action >= 0 ? weights[action] : -weights[-action - 1];
+    }
+
+
+
+// CONVERSION FROM AND TO PD_Action
+
+    // Encode a plan in the first actions of the given array
+    public void Encode(List<PD_Action> plan, int[] encoded) {
+        for (int k = 0; k < plan.size(); k++) {
+            PD_Action act = plan.get(k);
+            int task = indices.get(act.task);
+            encoded[k] = act.is_pickup ? Pickup(task) : Delivery(task);
+        }
+    }
+
+    // The first size actions of an encoded plan as a list of PD_Action
+    public List<PD_Action> Decode(int[] encoded, int size) {
+        List<PD_Action> plan = new ArrayList<>(size);
+        for (int k = 0; k < size; k++) {
+            int action = encoded[k];
+            plan.add(IsPickup(action) ? pickupActions[action] : deliveryActions[TaskOf(action)]);
+        }
+        return plan;
+    }
+}
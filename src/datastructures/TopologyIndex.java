@@ -0,0 +1,94 @@
+package datastructures;
+
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// All-pairs distances and shortest paths of a topology, computed once and indexed by city id.
+// The tables are read-only after construction, so one index is shared by every agent and thread using the topology.
+public class TopologyIndex {
+    private static final ConcurrentHashMap<Topology, TopologyIndex> byTopology = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<City, TopologyIndex> byCity = new ConcurrentHashMap<>();
+
+    private final int nr_cities;
+    private final City[] cities;
+    private final double[] distances;   // distances[from * nr_cities + to], in km
+    private final int[] nextHops;       // first city id on the shortest path from -> to, to itself if from == to
+    private final boolean[] neighbours; // neighbours[from * nr_cities + to] if there is a direct route
+    private final List<City>[] paths;   // same as City.pathTo but shared and unmodifiable
+
+    private TopologyIndex(Topology topology) {
+        this.nr_cities = topology.size();
+        this.cities = topology.cities().toArray(new City[0]);
+        this.distances = new double[nr_cities * nr_cities];
+        this.nextHops = new int[nr_cities * nr_cities];
+        this.neighbours = new boolean[nr_cities * nr_cities];
+        @SuppressWarnings("unchecked") // there are no arrays of a generic type, the paths are only Lists of City
+        List<City>[] paths = (List<City>[]) new List<?>[nr_cities * nr_cities];
+        this.paths = paths;
+
+        for (City from : cities) {
+            for (City neighbour : from.neighbors())
+                neighbours[from.id * nr_cities + neighbour.id] = true;
+
+            for (City to : cities) {
+                int k = from.id * nr_cities + to.id;
+                List<City> path = from.pathTo(to);
+                distances[k] = from.distanceTo(to);
+                nextHops[k] = path.isEmpty() ? to.id : path.get(0).id;
+                paths[k] = Collections.unmodifiableList(Arrays.asList(path.toArray(new City[0])));
+            }
+        }
+    }
+
+    // Get the index of a topology, building it the first time (normally in AuctionTemplate.setup)
+    public static TopologyIndex of(Topology topology) {
+        return byTopology.computeIfAbsent(topology, t -> {
+            TopologyIndex index = new TopologyIndex(t);
+            for (City city : index.cities)
+                byCity.put(city, index);
+            return index;
+        });
+    }
+
+    // Get the index of the topology a city belongs to. Cities of different topologies are never equal
+    public static TopologyIndex of(City city) {
+        TopologyIndex index = byCity.get(city);
+        if (index == null)
+            throw new IllegalStateException("No TopologyIndex was built for the topology of " + city);
+        return index;
+    }
+
+    public int size() {
+        return nr_cities;
+    }
+
+    public City city(int id) {
+        return cities[id];
+    }
+
+    public double distance(int from, int to) {
+        return distances[from * nr_cities + to];
+    }
+
+    public double distance(City from, City to) {
+        return distances[from.id * nr_cities + to.id];
+    }
+
+    public int nextHop(int from, int to) {
+        return nextHops[from * nr_cities + to];
+    }
+
+    public boolean isNeighbour(int from, int to) {
+        return neighbours[from * nr_cities + to];
+    }
+
+    // Cities to move through to go from one city to the other, excluding from and including to (empty if equal)
+    public List<City> path(City from, City to) {
+        return paths[from.id * nr_cities + to.id];
+    }
+}
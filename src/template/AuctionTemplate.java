@@ -4,6 +4,7 @@ package template;
 import java.io.File;
 import java.util.*;
 
+import datastructures.TopologyIndex;
 import logist.LogistPlatform;
 import logist.LogistSettings;
 import logist.Measures;
@@ -35,6 +36,8 @@ public class AuctionTemplate implements AuctionBehavior {
 	private Vehicle vehicle;
 	private City currentCity;
 	private Control control;
+	private SpeculativePricing speculation;
+	private AuctionTrace trace; // null unless the agent has a trace property (file to record the auction to)
 	private QTableV2 level_badness;
 	private Integer nr_bids;
 	private double avg_min;
@@ -45,6 +48,19 @@ public class AuctionTemplate implements AuctionBehavior {
 	private long timeout_bid;
 	private long timeout_plan;
 
+	private static final int SPECULATED_TASKS = 10; // most probable tasks priced in the background, see SpeculativePricing
+
+	private final LogistSettings settings; // timeouts, null to read them from the platform
+
+	public AuctionTemplate() {
+		this(null);
+	}
+
+	// Agent taking its timeouts from the given settings, to run it without the platform (see benchmark.AuctionTournament)
+	public AuctionTemplate(LogistSettings settings) {
+		this.settings = settings;
+	}
+
 	@Override
 	public void setup(Topology topology, TaskDistribution distribution,
 			Agent agent) {
@@ -54,9 +70,13 @@ public class AuctionTemplate implements AuctionBehavior {
 		this.agent = agent;
 		this.vehicle = agent.vehicles().get(0);
 		this.currentCity = vehicle.homeCity();
-		this.control = new Control(agent);
+		// search threads of the bids and plans, all the cores unless set (<set threads="..." /> in agents.xml)
+		this.control = new Control(agent, agent.readProperty("threads", Integer.class, Runtime.getRuntime().availableProcessors()));
+
+		// distance and path tables used by the search, SLS and Q-table code
+		TopologyIndex.of(topology);
 
-		this.level_badness = new QTableV2(topology, distribution, 0.85 );
+		this.level_badness = QTableV2.of(topology, distribution, 0.85);
 		this.nr_bids = 0;
 		this.avg_min = 0;
 		this.wins = 0;
@@ -75,19 +95,33 @@ public class AuctionTemplate implements AuctionBehavior {
 
 		long timeout_margin = 200;
 
+		LogistSettings timeouts = settings != null ? settings : LogistPlatform.getSettings();
 		// the setup method cannot last more than timeout_setup milliseconds
-		timeout_setup = LogistPlatform.getSettings().get(LogistSettings.TimeoutKey.SETUP) - timeout_margin;
+		timeout_setup = timeouts.get(LogistSettings.TimeoutKey.SETUP) - timeout_margin;
 		// the bid method cannot last more than timeout_bid milliseconds
-		timeout_bid = LogistPlatform.getSettings().get(LogistSettings.TimeoutKey.BID) - timeout_margin;
+		timeout_bid = timeouts.get(LogistSettings.TimeoutKey.BID) - timeout_margin;
 		// the plan method cannot last more than timeout_plan milliseconds
-		timeout_plan = LogistPlatform.getSettings().get(LogistSettings.TimeoutKey.PLAN) - timeout_margin;
+		timeout_plan = timeouts.get(LogistSettings.TimeoutKey.PLAN) - timeout_margin;
 		System.out.println("Agent " + agent.id() + ": timeout_setup: " + timeout_setup + ", timeout_bid: " + timeout_bid + ", timeout_plan: " + timeout_plan);
 
 		System.out.println("The average is: " + this.level_badness.getAvg_badness() );
+
+		// record the auction for benchmark.AuctionReplay if a trace file is set (<set trace="..." /> in agents.xml)
+		String traceFile = agent.readProperty("trace", String.class, null);
+		if (traceFile != null)
+			this.trace = new AuctionTrace(traceFile, topology, distribution, agent, timeouts.get(LogistSettings.TimeoutKey.SETUP),
+					timeouts.get(LogistSettings.TimeoutKey.BID), timeouts.get(LogistSettings.TimeoutKey.PLAN));
+
+		// price the most likely tasks while other agents bid, each vehicle with the share of the bid time it would get
+		this.speculation = new SpeculativePricing(control, topology, distribution, SPECULATED_TASKS, timeout_bid / agent.vehicles().size());
+		speculation.start();
 	}
 
 	@Override
 	public void auctionResult(Task previous, int winner, Long[] bids) {
+		if (trace != null)
+			trace.auctionResult(previous, winner, bids);
+		speculation.stop(); // the control maps change below
 		if (winner == agent.id()) {
 			control.updateControlVariablesIfTaskWon(previous);
 			this.wins += 1;
@@ -99,16 +133,21 @@ public class AuctionTemplate implements AuctionBehavior {
 
 		this.nr_bids += 1;
 		this.avg_min = ((this.nr_bids-1)*this.avg_min +  smallest_bid)/this.nr_bids;
+		speculation.start();
 	}
 	
 	@Override
 	public Long askPrice(Task task) {
+		long start = System.nanoTime();
 		double r = 0;
 
 		double R = this.level_badness.getCurr_badness(task) / this.level_badness.getAvg_badness();
 		System.out.println("The Ratio is: " + R);
 
+		speculation.pause(); // leave the cores to the bid, what it priced is in the cache
 		double marg_cost = control.getLowestMarginalCost(task, timeout_bid);
+		speculation.start(); // the other vehicles stay valid if we win
+		System.out.println("The marginal cost plan is within a factor " + control.getLowestMarginalCostBound() + " of the optimal one");
 
 		double bid;
 		if(this.avg_min < marg_cost) // lowest we bid is avg_min
@@ -119,13 +158,23 @@ public class AuctionTemplate implements AuctionBehavior {
 		bid = bid / (Math.max(1, 1.3 - (this.wins/12)));
 		System.out.println("The Bid is: " + bid);
 
-		return (long) Math.round(bid);
+		Long price = Math.round(bid);
+		if (trace != null)
+			trace.askPrice(task, price, System.nanoTime() - start);
+		return price;
 	}
 
 	@Override
 	public List<Plan> plan(List<Vehicle> vehicles, TaskSet tasks) {
+		long start = System.nanoTime();
+		speculation.shutdown(); // the auction is over
+		control.shutdown();
+		System.out.println("Agent " + agent.id() + ": " + control.getMarginalCostCache() + ", " + speculation.getPriced() + " speculative prices");
 		ArrayList<Task> taskArrayList = new ArrayList<>(tasks);
-		return Control.definitivePlans(vehicles, taskArrayList, timeout_plan);
+		List<Plan> plans = control.definitivePlans(vehicles, taskArrayList, timeout_plan);
+		if (trace != null)
+			trace.plan(vehicles, plans, tasks.size(), System.nanoTime() - start);
+		return plans;
 	}
 
 	private Plan naivePlan(Vehicle vehicle, TaskSet tasks) {
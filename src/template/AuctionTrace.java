@@ -0,0 +1,180 @@
+package template;
+
+import logist.agent.Agent;
+import logist.plan.Plan;
+import logist.simulation.Vehicle;
+import logist.task.Task;
+import logist.task.TaskDistribution;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+// Binary trace of one auction as seen by an agent, written while it runs and replayed by benchmark.AuctionReplay.
+// The header holds everything setup gets (agent id, vehicles, cities, task distribution) and the timeouts, then one
+// record is appended per call: the tasks announced with our bid and how long askPrice took, the results with all the
+// bids, and the plan cost and time. Integers are variable-length (small values take one byte), and every record is
+// flushed, so the trace of an agent that crashed or was killed can still be replayed up to that point.
+//
+// Format (version 1), v = unsigned varint, z = zigzag varint, b = bid as v (0 for no bid, zigzag of the bid + 1
+// otherwise):
+//   header: int MAGIC, v VERSION, v agent id, v timeout setup, bid and plan (ms),
+//           v cities, UTF name of each city (in id order), for each pair of cities: double probability, v reward,
+//           v weight, for each city: double probability of no task,
+//           v vehicles, for each vehicle: v id, UTF name, v home city, v capacity, v cost per km
+//   ASK:    byte ASK, v task id, v pickup, v delivery, v reward, v weight, b bid, v nanoseconds
+//   RESULT: byte RESULT, v task id, v reward, z winner, v bids, b each bid
+//   PLAN:   byte PLAN, v tasks, double cost, v nanoseconds
+public class AuctionTrace {
+    public static final int MAGIC = 0x41554354; // "AUCT"
+    public static final int VERSION = 1;
+    public static final byte ASK = 1;
+    public static final byte RESULT = 2;
+    public static final byte PLAN = 3;
+
+    private DataOutputStream out; // null once writing failed, the agent goes on without trace
+
+    public AuctionTrace(String file, Topology topology, TaskDistribution distribution, Agent agent,
+                        long timeout_setup, long timeout_bid, long timeout_plan) {
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(MAGIC);
+            writeVarLong(out, VERSION);
+            writeVarLong(out, agent.id());
+            writeVarLong(out, timeout_setup);
+            writeVarLong(out, timeout_bid);
+            writeVarLong(out, timeout_plan);
+
+            writeVarLong(out, topology.size());
+            for (City city : topology.cities())
+                out.writeUTF(city.name);
+            for (City from : topology.cities()) {
+                for (City to : topology.cities()) {
+                    out.writeDouble(distribution.probability(from, to));
+                    writeVarLong(out, distribution.reward(from, to));
+                    writeVarLong(out, distribution.weight(from, to));
+                }
+            }
+            for (City city : topology.cities())
+                out.writeDouble(distribution.probability(city, null)); // no task in the city
+
+            writeVarLong(out, agent.vehicles().size());
+            for (Vehicle vehicle : agent.vehicles()) {
+                writeVarLong(out, vehicle.id());
+                out.writeUTF(vehicle.name());
+                writeVarLong(out, vehicle.getCurrentCity().id);
+                writeVarLong(out, vehicle.capacity());
+                writeVarLong(out, vehicle.costPerKm());
+            }
+            out.flush();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    public void askPrice(Task task, Long bid, long nanos) {
+        if (out == null)
+            return;
+        try {
+            out.writeByte(ASK);
+            writeVarLong(out, task.id);
+            writeVarLong(out, task.pickupCity.id);
+            writeVarLong(out, task.deliveryCity.id);
+            writeVarLong(out, task.reward);
+            writeVarLong(out, task.weight);
+            writeBid(out, bid);
+            writeVarLong(out, nanos);
+            out.flush();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    public void auctionResult(Task task, int winner, Long[] bids) {
+        if (out == null)
+            return;
+        try {
+            out.writeByte(RESULT);
+            writeVarLong(out, task.id);
+            writeVarLong(out, task.reward);
+            writeVarLong(out, zigzag(winner));
+            writeVarLong(out, bids.length);
+            for (Long bid : bids)
+                writeBid(out, bid);
+            out.flush();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    public void plan(List<Vehicle> vehicles, List<Plan> plans, int nrTasks, long nanos) {
+        if (out == null)
+            return;
+        try {
+            out.writeByte(PLAN);
+            writeVarLong(out, nrTasks);
+            out.writeDouble(cost(vehicles, plans));
+            writeVarLong(out, nanos);
+            out.close();
+        } catch (IOException e) {
+            failed(e);
+        }
+        out = null;
+    }
+
+    // Cost of the plans of the vehicles, as the platform computes it
+    public static double cost(List<Vehicle> vehicles, List<Plan> plans) {
+        double cost = 0;
+        for (int i = 0; i < vehicles.size() && i < plans.size(); i++)
+            cost += plans.get(i).totalDistance() * vehicles.get(i).costPerKm();
+        return cost;
+    }
+
+    private void failed(IOException e) {
+        System.out.println("Auction trace disabled: " + e.getMessage());
+        out = null;
+    }
+
+    private static void writeBid(DataOutputStream out, Long bid) throws IOException {
+        writeVarLong(out, bid == null ? 0 : zigzag(bid) + 1);
+    }
+
+    // Unsigned LEB128: 7 bits per byte, the high bit set on every byte but the last
+    public static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    public static Long readBid(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        return value == 0 ? null : unzigzag(value - 1);
+    }
+
+    // Signed values as unsigned ones, small in absolute value stay small: 0, -1, 1, -2... are 0, 1, 2, 3...
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -1,9 +1,15 @@
 package template;
 
+import algorithms.AStar;
+import algorithms.CheapestInsertion;
+import algorithms.ParallelAStar;
+import algorithms.RegretInsertion;
+import centralized.ALNS;
 import centralized.Candidate;
 import centralized.CentralizedTemplate;
 import centralized.PD_Action;
-import datastructures.Pair;
+import centralized.PlanSearch;
+import datastructures.TopologyIndex;
 import logist.agent.Agent;
 import logist.plan.Plan;
 import logist.simulation.Vehicle;
@@ -13,8 +19,16 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static algorithms.AStar.aStarPlan;
 import static centralized.Candidate.ComputeCost;
 
 public class Control {
@@ -22,141 +36,333 @@ public class Control {
     /**
      *  - assignedTasks keeps track of the task that each vehicle is taken in an unorder manner
      *  - plans contains the so far computed plan for each vehicle
+     * They belong to one agent (several agents can run in the same JVM) and are only changed by its thread, in
+     * updateControlVariablesIfTaskWon. The bid searches and SpeculativePricing read them while they do not change
      */
-    private static HashMap<Vehicle, List<Task>> assignedTasks;
-    private static HashMap<Vehicle, List<PD_Action>> plans;
+    private final HashMap<Vehicle, List<Task>> assignedTasks;
+    private final HashMap<Vehicle, List<PD_Action>> plans;
+    private final ConcurrentHashMap<Vehicle, CheapestInsertion> insertions; // prefix arrays of the plans, see computeMarginalCost
+    private final HashMap<Vehicle, Double> planBounds; // suboptimality bound of the plans, see MarginalCost
+    private final MarginalCostCache marginalCostCache; // marginal costs of previous rounds, see getLowestMarginalCost
 
     /**********************/
 
     /** TMP VARIABLES**/
     /**
-     * Used to store the information regarding the plan with lowest marginal cost
-     * selectedPlan and selectedVehicle are used to update the control maps if task was to be assigned
+     * Used to store the information regarding the plan with lowest marginal cost of the last bid
+     * its plan and vehicle are used to update the control maps if task was to be assigned
      */
-    private static List<PD_Action> selectedPlan;
-    private static Vehicle selectedVehicle;
+    private LowestMarginalCost lowestMarginalCost;
 
     /**********************/
 
-    Control(Agent agent) {
+    /** SEARCH ENGINE**/
+    /**
+     * Up to a number of tasks per vehicle plans are computed with an exact search, above it with SLS.
+     * With enough search threads the parallel HDA* (ParallelAStar) is used, which can handle more tasks than A*.
+     * SLS runs one walker per search thread (CentralizedTemplate.ParallelSLS), the final plans of many tasks use ALNS
+     * When bidding, the vehicles are priced concurrently on vehicleEvaluations and share the search threads. Each agent
+     * has its own pool and number of threads (its share of the cores), so an agent bidding never waits for the searches
+     * of another agent of the JVM
+     */
+    private static final int PARALLEL_SEARCH_MIN_THREADS = 8;
+    private static final int ASTAR_MAX_TASKS = 6;
+    private static final int PARALLEL_ASTAR_MAX_TASKS = 8;
+    private static final int ALNS_MIN_TASKS = 60;
+    private static final double PARALLEL_POLISH_SHARE = 0.2; // share of timeout_plan kept to re-plan vehicles with HDA*
+    private static final long MIN_OPTIMIZER_TIME = 10; // ms, below it we bid with the cheapest insertion only
+    private static final int CACHE_MAX_ENTRIES = 4096;
+    private static final int CACHE_MAX_ACTIONS = 1 << 18;
+    private final int searchThreads;
+    private final ExecutorService vehicleEvaluations;
+
+    /**********************/
+
+    Control(Agent agent, int searchThreads) {
+        this.searchThreads = searchThreads;
+        this.vehicleEvaluations = Executors.newFixedThreadPool(searchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "vehicle-evaluation-" + agent.id());
+            thread.setDaemon(true);
+            return thread;
+        });
         this.assignedTasks = new HashMap<>();
         this.plans = new HashMap<>();
-        this.selectedPlan = new ArrayList<>();
-        this.selectedVehicle = null;
+        this.insertions = new ConcurrentHashMap<>();
+        this.planBounds = new HashMap<>();
+        this.marginalCostCache = new MarginalCostCache(CACHE_MAX_ENTRIES, CACHE_MAX_ACTIONS);
+        this.lowestMarginalCost = new LowestMarginalCost();
         for (Vehicle vehicle : agent.vehicles()) {
             assignedTasks.put(vehicle, new ArrayList<>());
             plans.put(vehicle, new ArrayList<>());
+            planBounds.put(vehicle, 1.0); // the empty plan is optimal
         }
     }
 
     public double getLowestMarginalCost(Task task, long timeout_bid) {
-        double lowestMarginalCost = Double.MAX_VALUE;
-        double vehicleMarginalCost;
-        List<PD_Action> newPlan;
-        Pair vehicleResults;
+        long deadline = System.currentTimeMillis() + timeout_bid;
+        LowestMarginalCost lowest = new LowestMarginalCost();
+        lowestMarginalCost = lowest;
 
-        // Compute marginal cost for all vehicles and keep the lowest
+        // Vehicles already priced for this kind of task are answered by the cache, the others are scheduled
+        List<Vehicle> scheduled = new ArrayList<>();
+        HashMap<Vehicle, Double> lowerBounds = new HashMap<>();
         for (Vehicle vehicle : plans.keySet()) {
-            // newPlan will be updated with the new computed plan
-            vehicleResults = computeMarginalCost(vehicle, task, timeout_bid/plans.size());
-            vehicleMarginalCost = (double)vehicleResults.t;
-            newPlan = (List<PD_Action>) vehicleResults.u;
-
-            System.out.println(vehicle.name() + " marginal cost: " + vehicleMarginalCost);
-            // if marginal cost is lower than current is good for us
-            if (vehicleMarginalCost < lowestMarginalCost) {
-                lowestMarginalCost = vehicleMarginalCost;
-
-                // store best plan and vehicle for the task to be assigned
-                // they will be used later if the bid is won
-                selectedPlan = newPlan;
-                selectedVehicle = vehicle;
+            MarginalCost cached = marginalCostCache.get(vehicle, assignedTasks.get(vehicle), task);
+            if (cached != null) {
+                System.out.println(vehicle.name() + " marginal cost: " + cached.cost);
+                lowest.offer(cached);
+            } else {
+                scheduled.add(vehicle);
+                lowerBounds.put(vehicle, marginalCostLowerBound(vehicle, task));
             }
         }
-        return lowestMarginalCost;
-    }
 
-    public static List<Plan> definitivePlans(List<Vehicle> vehicles, ArrayList<Task> tasks, long timeout_plan) {
-        // create a list of integers with the task id to be able to recover the id of the tasks
-        List<List<Integer>> tasksIDsList = new ArrayList<>();
-        for (List<Task> orginalTasks: assignedTasks.values()) {
-            List<Integer> taskIDs = new ArrayList<>();
-            for (Task task : orginalTasks) {
-                taskIDs.add(task.id);
-            }
-            tasksIDsList.add(taskIDs);
-        }
+        // The vehicles are priced concurrently, the cores shared among the searches running at the same time. With more
+        // vehicles than threads the most promising ones start first, and each one gets a share of the time left
+        // proportional to its work among the vehicles not started yet, so the time a vehicle does not use goes to the
+        // next ones
+        scheduled.sort(Comparator.comparingDouble(lowerBounds::get));
+        int concurrency = Math.max(1, Math.min(searchThreads, scheduled.size()));
+        int vehicleThreads = Math.max(1, searchThreads / concurrency);
+        int totalWork = 0;
+        for (Vehicle vehicle : scheduled)
+            totalWork += estimatedWork(vehicle);
+        AtomicInteger workLeft = new AtomicInteger(totalWork);
 
-        List<List<Task>> newTasks = new ArrayList<>();
-        for(List<Integer> taskIDofVeh: tasksIDsList) {
-            List<Task> listNewTasks = new ArrayList<>();
-            for (Task task : tasks) {
-                if (taskIDofVeh.contains(task.id) ){
-                    listNewTasks.add(task);
+        List<Callable<Void>> evaluations = new ArrayList<>();
+        for (Vehicle vehicle : scheduled) {
+            double lowerBound = lowerBounds.get(vehicle);
+            int work = estimatedWork(vehicle);
+            evaluations.add(() -> {
+                int workNotStarted = workLeft.getAndAdd(-work);
+                if (lowerBound >= lowest.getCost()) {
+                    System.out.println(vehicle.name() + " cannot beat marginal cost " + lowest.getCost());
+                    return null;
                 }
-            }
-            newTasks.add(listNewTasks);
+                long timeLeft = Math.max(0, deadline - System.currentTimeMillis());
+                long timeout = scheduled.size() <= concurrency ? timeLeft
+                        : Math.min(timeLeft, timeLeft * concurrency * work / workNotStarted);
+                MarginalCost vehicleResults = computeMarginalCost(vehicle, task, timeout, vehicleThreads);
+                marginalCostCache.put(vehicle, assignedTasks.get(vehicle), task, vehicleResults);
+                System.out.println(vehicle.name() + " marginal cost: " + vehicleResults.cost);
+                lowest.offer(vehicleResults);
+                return null;
+            });
         }
 
-        // update PD_Action struct in plans with the renovated tasks
-        for(List<PD_Action> vehPlan : plans.values()) {
-            for (PD_Action act : vehPlan) {
-                for(Task task : tasks) {
-                    if(task.id == act.task.id) {
-                        act.task = task;
-                    }
-                }
-            }
+        // Every search stops at the bid deadline and the vehicles that did not start by then only get the cheapest
+        // insertion, so waiting for all of them does not go past it
+        try {
+            for (Future<Void> evaluation : vehicleEvaluations.invokeAll(evaluations))
+                evaluation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Pricing the task failed", e.getCause());
         }
-        // And transform the HashMap to List<List<PD_Action>>
-        List<List<PD_Action>> plansList = new ArrayList<>();
-        plansList.addAll(plans.values());
+        return lowest.getCost();
+    }
+
+    // Lower bound of the marginal cost of the task on the vehicle. Without the task, the new plan is a plan of the
+    // current tasks, so it costs at least the optimal one, which is at least the current cost / its bound (infinite,
+    // so not used, for the plans of SLS). It also goes from the start city to the pickup city and then to the delivery
+    // city
+    private double marginalCostLowerBound(Vehicle vehicle, Task task) {
+        if (task.weight > vehicle.capacity())
+            return Double.POSITIVE_INFINITY;
+        TopologyIndex topology = TopologyIndex.of(vehicle.getCurrentCity());
+        double currentCost = insertionEngine(vehicle).getCost();
+        double optimalCost = currentCost / planBounds.get(vehicle);
+        double directCost = vehicle.costPerKm() * (topology.distance(vehicle.getCurrentCity(), task.pickupCity)
+                + topology.distance(task.pickupCity, task.deliveryCity));
+        return Math.max(optimalCost, directCost) - currentCost;
+    }
+
+    // Relative amount of search needed to price a task on the vehicle: the number of tasks it would carry
+    private int estimatedWork(Vehicle vehicle) {
+        return assignedTasks.get(vehicle).size() + 1;
+    }
+
+    // Suboptimality bound of the plan behind the last lowest marginal cost, see MarginalCost
+    public double getLowestMarginalCostBound() {
+        MarginalCost lowest = lowestMarginalCost.get();
+        return lowest == null ? Double.POSITIVE_INFINITY : lowest.bound;
+    }
+
+    public Set<Vehicle> getVehicles() {
+        return plans.keySet();
+    }
+
+    // Price a task that may be auctioned later on one vehicle, for the cache (see SpeculativePricing). Returns whether
+    // it was priced, false if it already was for the current tasks of the vehicle or if the thread was interrupted: the
+    // search then ends early and its price is not cached
+    public boolean priceSpeculatively(Vehicle vehicle, Task task, long timeout) {
+        List<Task> vehicleTasks = assignedTasks.get(vehicle);
+        if (marginalCostCache.contains(vehicle, vehicleTasks, task))
+            return false;
+        MarginalCost marginalCost = computeMarginalCost(vehicle, task, timeout, 1);
+        if (Thread.currentThread().isInterrupted())
+            return false;
+        marginalCostCache.put(vehicle, vehicleTasks, task, marginalCost);
+        return true;
+    }
+
+    // Release the threads of the bids at the end of the auction
+    public void shutdown() {
+        vehicleEvaluations.shutdown();
+    }
+
+    // Hits, misses and size of the marginal cost cache, for tuning
+    public MarginalCostCache getMarginalCostCache() {
+        return marginalCostCache;
+    }
 
+    public List<Plan> definitivePlans(List<Vehicle> vehicles, ArrayList<Task> tasks, long timeout_plan) {
+        // The tasks given to plan are other objects than the ones won during the auction, with the same ids: index them
+        // by id to remap the plans of the bids in one pass
+        int max_id = -1;
+        for (Task task : tasks) {
+            max_id = Math.max(max_id, task.id);
+        }
+        Task[] tasksById = new Task[max_id + 1];
+        for (Task task : tasks) {
+            tasksById[task.id] = task;
+        }
+
+        // Plans of the bids in the order of vehicles (plans is a HashMap), with new actions on the remapped tasks so the
+        // control maps are not changed. The vehicles are matched by id
+        HashMap<Integer, Vehicle> controlVehicles = new HashMap<>();
+        for (Vehicle vehicle : plans.keySet()) {
+            controlVehicles.put(vehicle.id(), vehicle);
+        }
+        List<List<PD_Action>> plansList = new ArrayList<>();
+        List<List<Task>> newTasks = new ArrayList<>();
         double cost = 0;
         for (Vehicle vehicle : vehicles) {
-            cost += ComputeCost(vehicle, plans.get(vehicle));
+            List<PD_Action> vehiclePlan = new ArrayList<>();
+            List<Task> vehicleTasks = new ArrayList<>();
+            for (PD_Action act : plans.get(controlVehicles.get(vehicle.id()))) {
+                Task task = tasksById[act.task.id];
+                vehiclePlan.add(new PD_Action(act.is_pickup, task));
+                if (act.is_pickup)
+                    vehicleTasks.add(task);
+            }
+            plansList.add(vehiclePlan);
+            newTasks.add(vehicleTasks);
+            cost += ComputeCost(vehicle, vehiclePlan);
         }
 
+        long deadline = System.currentTimeMillis() + timeout_plan;
         Candidate candidate = new Candidate(vehicles, plansList, newTasks, cost);
+
+        // SLS starts from the plans of the bids or from the regret insertion of all the tasks, whichever is cheaper
+        Candidate regret = RegretInsertion.initialSolution(vehicles, tasks, CentralizedTemplate.REGRET_K);
+        if (regret.cost < cost)
+            candidate = regret;
         CentralizedTemplate centralizedTemplate = new CentralizedTemplate();
-        // set new instance of centralized template with new timeout for planning
-        centralizedTemplate.setTimeout_plan(timeout_plan);
-        List<List<PD_Action>> newPDPlan = centralizedTemplate.SLS(vehicles,tasks, candidate);
+        // search the plans with SLS or ALNS (see planSearch)
+        // part of the time is kept to re-plan each vehicle with the exact search if we use the parallel one
+        long searchTimeout = useParallelSearch(searchThreads) ? (long) (timeout_plan * (1 - PARALLEL_POLISH_SHARE)) : timeout_plan;
+        List<List<PD_Action>> newPDPlan = new ArrayList<>(planSearch(tasks.size()).Search(vehicles, tasks, candidate, searchTimeout));
+
+        // SLS gave each vehicle its tasks, now find the best order of the vehicles with few enough of them
+        if (useParallelSearch(searchThreads)) {
+            for (int i = 0; i < vehicles.size(); i++) {
+                Vehicle vehicle = vehicles.get(i);
+                List<Task> vehicleTasks = new ArrayList<>();
+                for (PD_Action act : newPDPlan.get(i)) {
+                    if (act.is_pickup)
+                        vehicleTasks.add(act.task);
+                }
+                if (vehicleTasks.isEmpty() || vehicleTasks.size() > PARALLEL_ASTAR_MAX_TASKS)
+                    continue;
+
+                AStar.Result result = ParallelAStar.hdaStarPlan(vehicle, vehicleTasks, new State(vehicle, vehicleTasks), searchThreads, deadline);
+                if (result != null && ComputeCost(vehicle, result.plan) < ComputeCost(vehicle, newPDPlan.get(i)))
+                    newPDPlan.set(i, result.plan);
+            }
+        }
 
-        Candidate definitive = new Candidate(vehicles, newPDPlan, newTasks, cost);
+        // task lists and cost of the searched plans, the vehicles may carry other tasks than in the bids
+        List<List<Task>> definitiveTasks = new ArrayList<>();
+        double definitiveCost = 0;
+        for (int i = 0; i < vehicles.size(); i++) {
+            List<Task> vehicleTasks = new ArrayList<>();
+            for (PD_Action act : newPDPlan.get(i)) {
+                if (act.is_pickup)
+                    vehicleTasks.add(act.task);
+            }
+            definitiveTasks.add(vehicleTasks);
+            definitiveCost += ComputeCost(vehicles.get(i), newPDPlan.get(i));
+        }
+        Candidate definitive = new Candidate(vehicles, newPDPlan, definitiveTasks, definitiveCost);
+        System.out.println("definitive plans cost " + definitiveCost + " (bids " + cost + ")");
 
         return centralizedTemplate.PlanFromSolution(definitive);
     }
 
     public void updateControlVariablesIfTaskWon(Task task) {
+        MarginalCost selected = lowestMarginalCost.get();
+        if (selected == null)
+            throw new IllegalStateException("No vehicle can carry task " + task.id);
+        Vehicle selectedVehicle = selected.vehicle;
         List<Task> newVehicleTasks = assignedTasks.get(selectedVehicle);
         newVehicleTasks.add(task);
         assignedTasks.replace(selectedVehicle, newVehicleTasks);
-        plans.replace(selectedVehicle,selectedPlan);
+        // The platform announces the result with a new task object (its reward is the winning bid), the plan refers to
+        // the one we priced
+        List<PD_Action> newPlan = new ArrayList<>(selected.plan.size());
+        for (PD_Action act : selected.plan)
+            newPlan.add(act.task.id == task.id ? new PD_Action(act.is_pickup, task) : act);
+        plans.replace(selectedVehicle, newPlan);
+        planBounds.put(selectedVehicle, selected.bound);
+        insertions.remove(selectedVehicle);
+        marginalCostCache.invalidate(selectedVehicle);
         System.out.println("task " + task.id + " won by " + selectedVehicle.name());
     }
 
-    private Pair computeMarginalCost(Vehicle vehicle, Task task, long timeout_bid) {
+    // Marginal cost of the task on the vehicle, searched for timeout_bid ms with the given number of threads
+    private MarginalCost computeMarginalCost(Vehicle vehicle, Task task, long timeout_bid, int threads) {
+        long deadline = System.currentTimeMillis() + timeout_bid;
+        double currentCost = ComputeCost(vehicle, plans.get(vehicle));
+
+        // Quick bid: insert the task at the best place of the current plan
+        CheapestInsertion.Insertion insertion = insertionEngine(vehicle).bestInsertion(task);
+        if (insertion == null) // the vehicle cannot carry this task
+            return new MarginalCost(vehicle, Double.POSITIVE_INFINITY, null, Double.POSITIVE_INFINITY);
+        List<PD_Action> insertionPlan = insertion.apply();
+        MarginalCost quickBid = new MarginalCost(vehicle, insertion.marginalCost, insertionPlan, Double.POSITIVE_INFINITY);
+
+        // The full optimizer is only used when there is time left for it
+        if (deadline - System.currentTimeMillis() < MIN_OPTIMIZER_TIME)
+            return quickBid;
+
         // add the new task to the already assigned tasks for that vehicle
         List<Task> tmpAssignedTasks = new ArrayList<>(assignedTasks.get(vehicle));
         tmpAssignedTasks.add(task);
 
         Plan newPlan;
         List<PD_Action> newPDPlan;
-        // when having less than 6 tasks ASTAR works well
-        if (tmpAssignedTasks.size() < 7) {
+        double bound;
+        // when having few tasks the exact search works well. It stops at the deadline with the best plan so far
+        if (tmpAssignedTasks.size() <= exactSearchMaxTasks(threads)) {
             State initialState = new State(vehicle, tmpAssignedTasks);
-            newPDPlan = aStarPlan(vehicle, tmpAssignedTasks, initialState);
+            // both bounds are sound, they prune vehicles in getLowestMarginalCost (see marginalCostLowerBound)
+            AStar.Result result;
+            if (useParallelSearch(threads))
+                result = ParallelAStar.hdaStarPlan(vehicle, tmpAssignedTasks, initialState, threads, deadline);
+            else
+                result = AStar.anytimeAStarPlan(vehicle, tmpAssignedTasks, initialState, deadline);
+            newPDPlan = result.plan;
+            bound = result.bound;
         }
         else { // use centralized agents algortihm
             // create temporal list of just one vehicle
             List<Vehicle> justOneVehicle = new ArrayList<>();
             justOneVehicle.add(vehicle);
 
-            // create a temporal plan with the new task at the end
-            List<PD_Action> tmpPlan = new ArrayList<>(plans.get(vehicle));
-            tmpPlan.add(0, new PD_Action(true, task));
-            tmpPlan.add(new PD_Action(false, task));
+            // start from the plan with the task inserted at the best place
+            List<PD_Action> tmpPlan = new ArrayList<>(insertionPlan);
             List<List<PD_Action>> justOnePlan = new ArrayList<>();
             justOnePlan.add(tmpPlan);
 
@@ -164,14 +370,43 @@ public class Control {
             List<List<Task>> justOneTaskList = new ArrayList<>();
             justOneTaskList.add(tmpAssignedTasks);
 
-            Candidate candidate = new Candidate(justOneVehicle, justOnePlan,justOneTaskList,ComputeCost(vehicle, plans.get(vehicle)));
+            Candidate candidate = new Candidate(justOneVehicle, justOnePlan,justOneTaskList,ComputeCost(vehicle, tmpPlan));
             CentralizedTemplate centralizedTemplate = new CentralizedTemplate();
-            centralizedTemplate.setTimeout_plan(timeout_bid);
-            newPDPlan = centralizedTemplate.SLS(justOneVehicle,tmpAssignedTasks, candidate).get(0);
+            centralizedTemplate.setTimeout_plan(deadline - System.currentTimeMillis());
+            newPDPlan = centralizedTemplate.ParallelSLS(justOneVehicle, tmpAssignedTasks, candidate, threads).get(0);
+            bound = Double.POSITIVE_INFINITY;
         }
 
         // compute marginal cost to deliver the new task compared to the already assigned plan
-        double marginalCost = (ComputeCost(vehicle, newPDPlan) - ComputeCost(vehicle, plans.get(vehicle)));
-        return new Pair(marginalCost, newPDPlan);
+        double marginalCost = (ComputeCost(vehicle, newPDPlan) - currentCost);
+        if (marginalCost >= quickBid.cost)
+            return quickBid;
+        return new MarginalCost(vehicle, marginalCost, newPDPlan, bound);
+    }
+
+    // Insertion engine over the current plan of the vehicle, rebuilt only when the plan changes
+    private CheapestInsertion insertionEngine(Vehicle vehicle) {
+        return insertions.computeIfAbsent(vehicle, v -> new CheapestInsertion(v, plans.get(v)));
+    }
+
+    // Engine of the final plans: SLS with one walker per search thread, or from ALNS_MIN_TASKS tasks, where the small
+    // SLS moves get stuck, ALNS with one start per search thread (at 30 tasks SLS was still as good)
+    private PlanSearch planSearch(int nrTasks) {
+        if (nrTasks >= ALNS_MIN_TASKS) {
+            ALNS alns = new ALNS(new SplittableRandom());
+            alns.setNr_starts(searchThreads);
+            return alns;
+        }
+        CentralizedTemplate sls = new CentralizedTemplate();
+        sls.setNr_walkers(searchThreads);
+        return sls;
+    }
+
+    private static boolean useParallelSearch(int threads) {
+        return threads >= PARALLEL_SEARCH_MIN_THREADS;
+    }
+
+    private static int exactSearchMaxTasks(int threads) {
+        return useParallelSearch(threads) ? PARALLEL_ASTAR_MAX_TASKS : ASTAR_MAX_TASKS;
     }
 }
@@ -0,0 +1,27 @@
+package template;
+
+// The lowest marginal cost offered for a task by the vehicles priced so far, and its plan. Vehicles priced concurrently
+// offer their result to it, ties go to the vehicle with the lowest id so the result does not depend on the order.
+// Methods are synchronized, it can be shared.
+public class LowestMarginalCost {
+    private MarginalCost lowest = null;
+
+    // Keep the marginal cost if it is lower than the lowest one so far. Infinite costs (the vehicle cannot carry the
+    // task) are never kept
+    public synchronized void offer(MarginalCost marginalCost) {
+        boolean lower = marginalCost.cost < getCost() || (lowest != null && marginalCost.cost == lowest.cost
+                && marginalCost.vehicle.id() < lowest.vehicle.id());
+        if (lower)
+            lowest = marginalCost;
+    }
+
+    // The lowest marginal cost, null if no vehicle offered one
+    public synchronized MarginalCost get() {
+        return lowest;
+    }
+
+    // Cost of the lowest marginal cost, Double.MAX_VALUE if there is none
+    public synchronized double getCost() {
+        return lowest == null ? Double.MAX_VALUE : lowest.cost;
+    }
+}
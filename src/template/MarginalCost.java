@@ -0,0 +1,23 @@
+package template;
+
+import centralized.PD_Action;
+import logist.simulation.Vehicle;
+
+import java.util.List;
+
+// Result of pricing a task on one vehicle: the marginal cost, the new plan of the vehicle including the task and how
+// far that plan can be from the optimal one (its cost is at most bound * the optimal cost, 1 if it is optimal and
+// infinity if we do not know, e.g. for SLS)
+public class MarginalCost {
+    public final Vehicle vehicle;
+    public final double cost;
+    public final List<PD_Action> plan;
+    public final double bound;
+
+    public MarginalCost(Vehicle vehicle, double cost, List<PD_Action> plan, double bound) {
+        this.vehicle = vehicle;
+        this.cost = cost;
+        this.plan = plan;
+        this.bound = bound;
+    }
+}
@@ -0,0 +1,159 @@
+package template;
+
+import centralized.PD_Action;
+import logist.simulation.Vehicle;
+import logist.task.Task;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Marginal costs (and their plans) computed in previous rounds. An entry is keyed by the vehicle, a fingerprint of the
+// tasks it had and the pickup city, delivery city and weight of the priced task, so pricing the same kind of task on a
+// vehicle whose tasks did not change is answered without searching again.
+// It is an LRU cache bounded both in entries and in stored plan actions. Methods are synchronized, it can be shared.
+public class MarginalCostCache {
+    private final int maxEntries;
+    private final int maxActions;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int storedActions = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    private static class Key {
+        final int vehicleId;
+        final long tasksFingerprint;
+        final int nrTasks;
+        final int pickupCity;
+        final int deliveryCity;
+        final int weight;
+
+        Key(Vehicle vehicle, List<Task> vehicleTasks, Task task) {
+            this.vehicleId = vehicle.id();
+            this.tasksFingerprint = fingerprint(vehicleTasks);
+            this.nrTasks = vehicleTasks.size();
+            this.pickupCity = task.pickupCity.id;
+            this.deliveryCity = task.deliveryCity.id;
+            this.weight = task.weight;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return vehicleId == k.vehicleId && tasksFingerprint == k.tasksFingerprint && nrTasks == k.nrTasks
+                    && pickupCity == k.pickupCity && deliveryCity == k.deliveryCity && weight == k.weight;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(vehicleId, tasksFingerprint, pickupCity, deliveryCity, weight);
+        }
+    }
+
+    // The cached result and the task object it was computed with, to swap it for the new one on a hit
+    private static class Entry {
+        final MarginalCost marginalCost;
+        final Task task;
+
+        Entry(MarginalCost marginalCost, Task task) {
+            this.marginalCost = marginalCost;
+            this.task = task;
+        }
+    }
+
+    public MarginalCostCache(int maxEntries, int maxActions) {
+        this.maxEntries = maxEntries;
+        this.maxActions = maxActions;
+    }
+
+    // Order-independent 64 bits fingerprint of a set of tasks
+    private static long fingerprint(List<Task> tasks) {
+        long fingerprint = 0L;
+        for (Task task : tasks) {
+            long h = (task.id + 1) * 0x9E3779B97F4A7C15L;
+            h ^= (h >>> 31);
+            fingerprint += h * 0xBF58476D1CE4E5B9L;
+        }
+        return fingerprint;
+    }
+
+    // Cached marginal cost of the task on the vehicle with the given tasks, null if unknown
+    public synchronized MarginalCost get(Vehicle vehicle, List<Task> vehicleTasks, Task task) {
+        Entry entry = entries.get(new Key(vehicle, vehicleTasks, task));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+
+        // The plan refers to the task it was computed for, give it the new one
+        MarginalCost cached = entry.marginalCost;
+        List<PD_Action> plan = new ArrayList<>(cached.plan.size());
+        for (PD_Action act : cached.plan)
+            plan.add(act.task == entry.task ? new PD_Action(act.is_pickup, task) : act);
+        return new MarginalCost(vehicle, cached.cost, plan, cached.bound);
+    }
+
+    // Whether the marginal cost is cached, without counting it as a lookup
+    public synchronized boolean contains(Vehicle vehicle, List<Task> vehicleTasks, Task task) {
+        return entries.containsKey(new Key(vehicle, vehicleTasks, task));
+    }
+
+    public synchronized void put(Vehicle vehicle, List<Task> vehicleTasks, Task task, MarginalCost marginalCost) {
+        if (marginalCost.plan == null)
+            return;
+        Entry previous = entries.put(new Key(vehicle, vehicleTasks, task), new Entry(marginalCost, task));
+        if (previous != null)
+            storedActions -= previous.marginalCost.plan.size();
+        storedActions += marginalCost.plan.size();
+
+        // Evict the least recently used entries
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || storedActions > maxActions) && eldest.hasNext()) {
+            storedActions -= eldest.next().getValue().marginalCost.plan.size();
+            eldest.remove();
+        }
+    }
+
+    // Drop every entry of a vehicle, e.g. when its tasks change
+    public synchronized void invalidate(Vehicle vehicle) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> entry = it.next();
+            if (entry.getKey().vehicleId == vehicle.id()) {
+                storedActions -= entry.getValue().marginalCost.plan.size();
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MarginalCostCache{hits=" + hits + ", misses=" + misses + ", hitRate=" + getHitRate()
+                + ", entries=" + entries.size() + ", actions=" + storedActions + "}";
+    }
+}
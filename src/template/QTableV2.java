@@ -1,5 +1,6 @@
 package template;
 
+import datastructures.TopologyIndex;
 import logist.task.Task;
 import logist.task.TaskDistribution;
 import logist.topology.Topology;
@@ -7,13 +8,37 @@ import logist.topology.Topology.City;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.WeakHashMap;
 
+// Badness of the cities computed by value iteration over the task distribution. It is read-only once built, so the
+// agents of a JVM playing on the same topology and distribution share one table (see of)
 public class QTableV2 {
+    // by distribution, then topology and discount. The tables go with their distribution, a headless tournament creates
+    // one per match
+    private static final WeakHashMap<TaskDistribution, HashMap<List<Object>, QTableV2>> tables = new WeakHashMap<>();
+
     private final double avg_badness;
     private final double[] badness;
     private final int nr_cities;
 
+    // Get the table of a topology and task distribution, computing it the first time
+    public static QTableV2 of(Topology topology, TaskDistribution distribution, double discount) {
+        List<Object> key = List.of(topology, discount);
+        synchronized (tables) {
+            QTableV2 table = tables.computeIfAbsent(distribution, d -> new HashMap<>()).get(key);
+            if (table != null)
+                return table;
+        }
+        // computed outside the lock, the agents of other matches do not wait for it
+        QTableV2 table = new QTableV2(topology, distribution, discount);
+        synchronized (tables) {
+            QTableV2 previous = tables.computeIfAbsent(distribution, d -> new HashMap<>()).putIfAbsent(key, table);
+            return previous != null ? previous : table;
+        }
+    }
+
     QTableV2(Topology topology1, TaskDistribution td1, Double discount){
         //////////////////////////////////////////////////////////
         /////////////////////// Create State Space ///////////////
@@ -23,9 +48,10 @@ public class QTableV2 {
         // Define state_space as an array of states, where each element is a class of type State
         StateQV2[] state_space = new StateQV2[nr_states];
 
-        // Extract the list of cities
+        // Extract the list of cities and the precomputed distances
         List<City> city_list = topology1.cities();
         nr_cities = topology1.size();
+        TopologyIndex topology_index = TopologyIndex.of(topology1);
 
         // Create States Space
         int k = 0; // State Space index
@@ -100,20 +126,8 @@ public class QTableV2 {
                         ////////////////////////////////////////////////////
                         //////// Discover if action # is a neighbor ////////
 
-                        // Get the list of neighboring cities
-                        List<City> neighbor_cities = current_city.neighbors();
-
                         // Boolean to see if action (move to city a) is a neighboring city
-                        boolean neighbour = false;
-
-                        // Iterate through neighbour list to find if actions is a neighbouring city
-                        for (City neighborCity : neighbor_cities) {
-                            // If action city is a neighbor, then set boolean to true
-                            if (neighborCity.id == a) {
-                                neighbour = true;
-                                break;
-                            }
-                        }
+                        boolean neighbour = topology_index.isNeighbour(current_city.id, a);
                         //////// Discover if action # is a neighbor ////////
                         ////////////////////////////////////////////////////
                         /////// Calculate Q matrix for MOVE actions ////////
@@ -124,7 +138,7 @@ public class QTableV2 {
                             Topology.City next_city = city_list.get(a);
 
                             // Get distance [km] from current to next city
-                            double distance = current_city.distanceTo(next_city);
+                            double distance = topology_index.distance(current_city, next_city);
 
                             // Calculate net reward [R(s,a)]
                             double net_reward = -distance;
@@ -147,7 +161,7 @@ public class QTableV2 {
                         // If we have a package to be delivered
                         if(package_city != null){
                             // Get distance [km] from current to next city
-                            double distance = current_city.distanceTo(package_city);
+                            double distance = topology_index.distance(current_city, package_city);
 
                             // Calculate net reward [R(s,a)]
                             double net_reward = -distance * (1 - td1.probability(current_city, package_city));
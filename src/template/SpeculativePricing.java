@@ -0,0 +1,109 @@
+package template;
+
+import logist.simulation.Vehicle;
+import logist.task.Task;
+import logist.task.TaskDistribution;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Prices the tasks most likely to be auctioned next while the agent is idle (other agents bidding, results being
+// announced). The most probable (pickup, delivery) pairs of the task distribution are priced on every vehicle, one
+// vehicle at a time on a background thread, and kept in the marginal cost cache of Control: when the real task matches
+// one of them, getLowestMarginalCost answers those vehicles from the cache and only searches the others.
+// Rounds only read Control, which must not change while one runs: stop() waits for them to end. pause() and stop()
+// interrupt the search of the running round, which then ends at once and caches nothing for that vehicle.
+public class SpeculativePricing {
+    private final Control control;
+    private final List<Task> likelyTasks; // the most probable tasks, most probable first
+    private final long timeout; // search time per vehicle and task
+    private volatile Thread thread = null; // of the executor, interrupted to end the search of a round
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "speculative-pricing");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        this.thread = thread;
+        return thread;
+    });
+    private volatile int generation = 0; // a round goes on while it is the last one started
+    private Future<?> lastRound = null;
+    private volatile int priced = 0; // vehicle prices computed by the rounds, for tuning
+
+    public SpeculativePricing(Control control, Topology topology, TaskDistribution distribution, int nrTasks, long timeout) {
+        this.control = control;
+        this.timeout = timeout;
+
+        // Tasks of all the pairs of cities with the expected weight, the ids are never used
+        List<Task> tasks = new ArrayList<>();
+        for (City from : topology.cities()) {
+            for (City to : topology.cities()) {
+                if (from != to && distribution.probability(from, to) > 0)
+                    tasks.add(new Task(-1, from, to, distribution.reward(from, to), distribution.weight(from, to)));
+            }
+        }
+        tasks.sort(Comparator.comparingDouble((Task task) -> distribution.probability(task.pickupCity, task.deliveryCity)).reversed());
+        this.likelyTasks = new ArrayList<>(tasks.subList(0, Math.min(nrTasks, tasks.size())));
+    }
+
+    // Start a round of pricing in the background, from the most probable task. What was already priced for the current
+    // tasks of a vehicle is skipped. The previous round must have been paused or stopped
+    public synchronized void start() {
+        int roundGeneration = ++generation;
+        lastRound = executor.submit(() -> {
+            for (Task task : likelyTasks) {
+                for (Vehicle vehicle : control.getVehicles()) {
+                    if (generation != roundGeneration || Thread.currentThread().isInterrupted())
+                        return;
+                    if (control.priceSpeculatively(vehicle, task, timeout))
+                        priced++;
+                }
+            }
+        });
+    }
+
+    // Leave the cores to a bid: the round ends in the search it is running, without waiting for it
+    public synchronized void pause() {
+        generation++;
+        interrupt();
+    }
+
+    // End the round and wait for it before Control changes, it only has to notice the interrupt
+    public synchronized void stop() {
+        generation++;
+        interrupt();
+        if (lastRound == null)
+            return;
+        try {
+            lastRound.get(); // the rounds run one after the other, the last one ends after all the others
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Speculative pricing failed", e.getCause());
+        }
+        lastRound = null;
+    }
+
+    // The executor clears the interrupt before running the next round, an idle thread just ignores it
+    private void interrupt() {
+        Thread running = thread;
+        if (running != null)
+            running.interrupt();
+    }
+
+    // Stop for good at the end of the auction, releasing the thread
+    public synchronized void shutdown() {
+        stop();
+        executor.shutdown();
+    }
+
+    public int getPriced() {
+        return priced;
+    }
+}
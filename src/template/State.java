@@ -1,32 +1,40 @@
 package template;
 
 import centralized.PD_Action;
+import datastructures.TopologyIndex;
 import logist.simulation.Vehicle;
 import logist.task.Task;
 import logist.topology.Topology.City;
 
 import java.util.*;
 
-import logist.plan.Action;
+import logist.plan.Plan;
 
-// Representation of the state. Attributes are pretty clear.
+// Representation of the state. The tasks are kept as two bitmasks over a per-search TaskIndex
+// (bit i set <=> task i is carried / still available), so equals and hashCode are O(1).
+// A state only knows its parent and the action leading to it: the plan is rebuilt from the chain of parents.
 public class State implements Comparable<State>{
+	private final TaskIndex taskIndex;
 	private final City currentCity;
-	private final List<Task> carriedTasks;
-	private final List<Task> availableTasks;
-	private LinkedList<Action> actionsToReach;
-	private List<PD_Action> PDPlan;
-	private double costToReach;
+	private final long carriedTasks;
+	private final long availableTasks;
+	private final State parent;	// null for the initial state
+	private final PD_Action lastAction;	// action taken in the parent to reach this state, null for the initial state
+	private final double costToReach;
+	private final double heuristicValue;	// computed once, see computeHeuristicValue
 	private int currentVehicleCapacity;
 
-	public State (City currentCity, List<Task> carriedTasks, List<Task> availableTasks, int currentVehicleCapacity) {
+	private State (TaskIndex taskIndex, City currentCity, long carriedTasks, long availableTasks, int currentVehicleCapacity,
+				   State parent, PD_Action lastAction, double costToReach) {
+		this.taskIndex = taskIndex;
 		this.currentCity = currentCity;
 		this.carriedTasks = carriedTasks;
 		this.availableTasks = availableTasks;
 		this.currentVehicleCapacity = currentVehicleCapacity;
-		this.actionsToReach = new LinkedList<Action>();
-		this.PDPlan = new ArrayList<>();
-		this.costToReach = 0;
+		this.parent = parent;
+		this.lastAction = lastAction;
+		this.costToReach = costToReach;
+		this.heuristicValue = computeHeuristicValue(parent);
 	}
 	
 	public State(Vehicle vehicle, List<Task> available) {
@@ -34,11 +42,30 @@ public class State implements Comparable<State>{
 	}
 	
 	public State(Vehicle vehicle, List<Task> available, List<Task> carriedTasks) {
-		this (vehicle.getCurrentCity(), carriedTasks, available, vehicle.capacity());
+		this (vehicle, indexOf(vehicle, available, carriedTasks), available, carriedTasks);
+	}
+
+	private State(Vehicle vehicle, TaskIndex taskIndex, List<Task> available, List<Task> carriedTasks) {
+		this (taskIndex, vehicle.getCurrentCity(), taskIndex.maskOf(carriedTasks), taskIndex.maskOf(available),
+				vehicle.capacity() - weightOf(carriedTasks), null, null, 0);
+	}
+
+	// The index of a search covers every task it has to handle
+	private static TaskIndex indexOf(Vehicle vehicle, List<Task> available, List<Task> carriedTasks) {
+		List<Task> allTasks = new ArrayList<>(carriedTasks);
+		allTasks.addAll(available);
+		return new TaskIndex(allTasks, TopologyIndex.of(vehicle.getCurrentCity()));
+	}
+
+	private static int weightOf(List<Task> tasks) {
+		int weight = 0;
+		for (Task task : tasks)
+			weight += task.weight;
+		return weight;
 	}
 	
 	public boolean isFinal() {
-		return this.carriedTasks.isEmpty() && this.availableTasks.isEmpty();
+		return this.carriedTasks == 0L && this.availableTasks == 0L;
 	}
 
 	public LinkedList<State> generateChildren(){
@@ -50,36 +77,24 @@ public class State implements Comparable<State>{
 	public LinkedList<State> generateDeliveryChildren(){
 		LinkedList<State> children = new LinkedList<State>();
 		
-		// Go through every task
-		for (Task task: this.getCarriedTasks()) {
-			// We do a deep copy
-			List<Task> childCarriedTasks = new ArrayList<>(this.getCarriedTasks());
-			childCarriedTasks.remove(task);
-			List<Task> childAvailableTasks = new ArrayList<>(this.getAvailableTasks());
+		// Go through every carried task
+		for (long m = this.carriedTasks; m != 0; m &= m - 1) {
+			int i = Long.numberOfTrailingZeros(m);
+			Task task = this.taskIndex.get(i);
 			
-			// Create the state
+			// Compute the distance
+			double branchCost = this.taskIndex.getTopology().distance(currentCity, task.deliveryCity);
+
+			// Create the state, the task is no longer carried
 			State child = new State (
+					this.taskIndex,
 					task.deliveryCity,
-					childCarriedTasks,
-					childAvailableTasks,
-					this.getCurrentVehicleCapacity() + task.weight);
-			
-			// We add the action move to every cities in the path
-			LinkedList<Action> branchActions = new LinkedList<Action>(this.getActionsToReach());
-			for (City city: currentCity.pathTo(task.deliveryCity)) {
-				branchActions.add(new Action.Move(city));
-			}
-			// And finally, the delivery action
-			branchActions.add(new Action.Delivery(task));
-			child.setActionsToReach(branchActions);
-
-			List<PD_Action> branchPDActions = new ArrayList<>(this.getPDPlan());
-			branchPDActions.add(new PD_Action(false,task));
-			child.setPDPlan(branchPDActions);
-
-			// Compute the distance
-			double branchCost = currentCity.distanceTo(task.deliveryCity);
-			child.setCostToReach(this.getCostToReach()+branchCost);
+					this.carriedTasks & ~(1L << i),
+					this.availableTasks,
+					this.getCurrentVehicleCapacity() + task.weight,
+					this,
+					new PD_Action(false, task),
+					this.getCostToReach() + branchCost);
 			
 			children.add(child);	
 		}
@@ -91,32 +106,21 @@ public class State implements Comparable<State>{
 	public LinkedList<State> generatePickUpChildren(){
 		LinkedList<State> children = new LinkedList<State>();
 				
-		for (Task task: this.getAvailableTasks()) {
+		for (long m = this.availableTasks; m != 0; m &= m - 1) {
+			int i = Long.numberOfTrailingZeros(m);
+			Task task = this.taskIndex.get(i);
 			if (this.getCurrentVehicleCapacity() >= task.weight) {
-				List<Task> childCarriedTasks = new ArrayList<>(this.getCarriedTasks());
-				childCarriedTasks.add(task);
-				List<Task> childAvailableTasks = new ArrayList<>(this.getAvailableTasks());
-				childAvailableTasks.remove(task);
-				
+				double branchCost = this.taskIndex.getTopology().distance(currentCity, task.pickupCity);
+
 				State child = new State (
+						this.taskIndex,
 						task.pickupCity,
-						childCarriedTasks,
-						childAvailableTasks,
-						this.getCurrentVehicleCapacity() - task.weight);
-				
-				LinkedList<Action> branchActions = new LinkedList<Action>(this.getActionsToReach());
-				for(City city : currentCity.pathTo(task.pickupCity)) {
-					branchActions.add(new Action.Move(city));
-				}
-				branchActions.add(new Action.Pickup(task));
-				child.setActionsToReach(branchActions);
-
-				List<PD_Action> branchPDActions = new ArrayList<>(this.getPDPlan());
-				branchPDActions.add(new PD_Action(true,task));
-				child.setPDPlan(branchPDActions);
-				
-				double branchCost = currentCity.distanceTo(task.pickupCity);
-				child.setCostToReach(this.getCostToReach()+branchCost);
+						this.carriedTasks | (1L << i),
+						this.availableTasks & ~(1L << i),
+						this.getCurrentVehicleCapacity() - task.weight,
+						this,
+						new PD_Action(true, task),
+						this.getCostToReach() + branchCost);
 				
 				children.add(child);
 			}
@@ -126,49 +130,108 @@ public class State implements Comparable<State>{
 	}
 	
 	public double getCostFunctionValue () {
-		return this.getCostToReach() + this.getHeuristicValue();
+		return this.costToReach + this.heuristicValue;
 	}
 	
-	// Compute the heuristic value
 	public double getHeuristicValue () {
-		double minCostBetweenCities = 0;
-		Set<City> citiesVisited = new HashSet<City>();
-		Set<City> citiesToVisit = new HashSet<City>();
-		
-		// Get all the cities that we will visit
-		for (Task task: this.getCarriedTasks())
-			citiesToVisit.add(task.deliveryCity);
-		for (Task task: this.getAvailableTasks()) {
-			citiesToVisit.add(task.pickupCity);
-			citiesToVisit.add(task.deliveryCity);
+		return this.heuristicValue;
+	}
+
+	// Compute the heuristic value once, when the state is created. It is the weight of a minimum spanning tree over
+	// the current city and all cities we still have to visit, which only depends on that set of cities. So it is
+	// looked up in the search-wide cache first, and states reaching an already seen set of cities share the value.
+	// The parent's value is propagated (pathmax) so that f never decreases along a path.
+	private double computeHeuristicValue(State parent) {
+		long cities = this.citiesToVisitMask();
+		Double cached = (cities != -1L) ? this.taskIndex.getCachedHeuristic(cities) : null;
+
+		double heuristic;
+		if (cached != null) {
+			heuristic = cached;
 		}
-		
-		// We remove our current city
-		citiesToVisit.remove(this.getCurrentCity());
-		citiesVisited.add(this.getCurrentCity());
-		
-		// Go through all cities to compute the heuristic
-		while (!citiesToVisit.isEmpty()) {
-			double minDistance = Double.MAX_VALUE;
-			City closestCity = null;
-
-			for (City cityVisited: citiesVisited) {
-				for (City cityToVisit: citiesToVisit) {
-					double distance = cityVisited.distanceTo(cityToVisit);
-					if (distance < minDistance) {
-						minDistance = distance;
-						closestCity = cityToVisit;
-					}
-				}
+		else {
+			heuristic = this.minimumSpanningTreeCost();
+			if (cities != -1L)
+				this.taskIndex.cacheHeuristic(cities, heuristic);
+		}
+
+		if (parent != null)
+			heuristic = Math.max(heuristic, parent.heuristicValue - (this.costToReach - parent.costToReach));
+		return heuristic;
+	}
+
+	// Bitmask of the city ids of the current city and every city still to visit, -1 if an id does not fit a long
+	private long citiesToVisitMask() {
+		long cities = cityBit(this.currentCity);
+		for (long m = this.carriedTasks; m != 0 && cities != -1L; m &= m - 1) {
+			Task task = this.taskIndex.get(Long.numberOfTrailingZeros(m));
+			cities = orCityBit(cities, task.deliveryCity);
+		}
+		for (long m = this.availableTasks; m != 0 && cities != -1L; m &= m - 1) {
+			Task task = this.taskIndex.get(Long.numberOfTrailingZeros(m));
+			cities = orCityBit(orCityBit(cities, task.pickupCity), task.deliveryCity);
+		}
+		return cities;
+	}
+
+	private static long cityBit(City city) {
+		return (city.id < Long.SIZE - 1) ? (1L << city.id) : -1L;
+	}
+
+	private static long orCityBit(long cities, City city) {
+		long bit = cityBit(city);
+		return (cities == -1L || bit == -1L) ? -1L : (cities | bit);
+	}
+
+	// Prim's algorithm over the cities we still have to visit, starting from the current one
+	private double minimumSpanningTreeCost() {
+		List<City> cities = new ArrayList<>();
+		cities.add(this.currentCity);
+		for (long m = this.carriedTasks; m != 0; m &= m - 1)
+			addCity(cities, this.taskIndex.get(Long.numberOfTrailingZeros(m)).deliveryCity);
+		for (long m = this.availableTasks; m != 0; m &= m - 1) {
+			Task task = this.taskIndex.get(Long.numberOfTrailingZeros(m));
+			addCity(cities, task.pickupCity);
+			addCity(cities, task.deliveryCity);
+		}
+
+		TopologyIndex topology = this.taskIndex.getTopology();
+		int n = cities.size();
+		double[] distanceToTree = new double[n];
+		boolean[] inTree = new boolean[n];
+		inTree[0] = true;
+		for (int j = 1; j < n; j++)
+			distanceToTree[j] = topology.distance(this.currentCity, cities.get(j));
+
+		double minCostBetweenCities = 0;
+		for (int added = 1; added < n; added++) {
+			// Get the closest city to the tree
+			int closest = -1;
+			for (int j = 1; j < n; j++) {
+				if (!inTree[j] && (closest == -1 || distanceToTree[j] < distanceToTree[closest]))
+					closest = j;
 			}
+			inTree[closest] = true;
+			minCostBetweenCities += distanceToTree[closest];
 
-			citiesToVisit.remove(closestCity);
-			citiesVisited.add(closestCity);
-			minCostBetweenCities += minDistance;
+			// And update the distances of the others with the new city
+			City closestCity = cities.get(closest);
+			for (int j = 1; j < n; j++) {
+				if (!inTree[j])
+					distanceToTree[j] = Math.min(distanceToTree[j], topology.distance(closestCity, cities.get(j)));
+			}
 		}
 		
 		return minCostBetweenCities;
 	}
+
+	private static void addCity(List<City> cities, City city) {
+		for (City c : cities) {
+			if (c.id == city.id)
+				return;
+		}
+		cities.add(city);
+	}
 	
 	@Override
 	public int compareTo (State st) {
@@ -183,35 +246,57 @@ public class State implements Comparable<State>{
 
 
 	public List<Task> getCarriedTasks() {
-		return this.carriedTasks;
+		return this.taskIndex.tasksOf(this.carriedTasks);
 	}
 
 
 	public List<Task> getAvailableTasks() {
-		return this.availableTasks;
+		return this.taskIndex.tasksOf(this.availableTasks);
 	}
 
-	
-	public LinkedList<Action> getActionsToReach() {
-		return this.actionsToReach;
+	public State getParent() {
+		return this.parent;
 	}
 
-	public List<PD_Action> getPDPlan() { return PDPlan;}
+	public PD_Action getLastAction() {
+		return this.lastAction;
+	}
 
-	public void setActionsToReach(LinkedList<Action> actionsToReach) {
-		this.actionsToReach = actionsToReach;
+	// Rebuild the pickup/delivery plan leading to this state by following the parents. Meant to be called once,
+	// on the final state of a search
+	public List<PD_Action> getPDPlan() {
+		LinkedList<PD_Action> PDPlan = new LinkedList<>();
+		for (State state = this; state.parent != null; state = state.parent)
+			PDPlan.addFirst(state.lastAction);
+		return new ArrayList<>(PDPlan);
 	}
 
-	public void setPDPlan(List<PD_Action> PDPlan) { this.PDPlan = PDPlan;}
+	// Same as above but for the logist platform, with the move actions between the cities
+	public Plan getPlan() {
+		State initialState = this;
+		while (initialState.parent != null)
+			initialState = initialState.parent;
+
+		City current = initialState.currentCity;
+		Plan plan = new Plan(current);
+		for (PD_Action act : this.getPDPlan()) {
+			City next = act.is_pickup ? act.task.pickupCity : act.task.deliveryCity;
+			for (City city : this.taskIndex.getTopology().path(current, next))
+				plan.appendMove(city);
+
+			if (act.is_pickup)
+				plan.appendPickup(act.task);
+			else
+				plan.appendDelivery(act.task);
+			current = next;
+		}
+		return plan;
+	}
 
 	public double getCostToReach() {
 		return this.costToReach;
 	}
 	
-	public void setCostToReach(double costToReach) {
-		this.costToReach = costToReach;
-	}
-	
 	public int getCurrentVehicleCapacity() {
 		return this.currentVehicleCapacity;
 	}
@@ -222,11 +307,11 @@ public class State implements Comparable<State>{
 	
 	@Override
 	public String toString() {
-	    return ("currencity=" + getCurrentCity().name + ",Carrying taks=" + getCarriedTasks() +", available tasks=" + getAvailableTasks() + ",cost=" + getCostToReach() + ",actions=" + getActionsToReach() );
+	    return ("currencity=" + getCurrentCity().name + ",Carrying taks=" + getCarriedTasks() +", available tasks=" + getAvailableTasks() + ",cost=" + getCostToReach() + ",actions=" + getPDPlan().size() );
 	}
 	
 	@Override
-	// Important to define an = operator between two states
+	// Important to define an = operator between two states. The bitmasks make it independent of the task order
 	public boolean equals(Object o) {
 		if (this == o)
             return true;
@@ -236,36 +321,17 @@ public class State implements Comparable<State>{
             return false;
         
 		State s = (State) o;
-		if (this.currentCity != s.currentCity)
-			return false;
-
-		for (Task t: this.availableTasks) {
-			if (!(s.availableTasks.contains(t))) {
-				return false;
-			}
-		}
-		for (Task t: s.availableTasks) {
-			if (!(this.availableTasks.contains(t))) {
-				return false;
-			}
-		}
-		
-		for (Task t: this.carriedTasks) {
-			if (!(s.carriedTasks.contains(t))) {
-				return false;
-			}
-		}
-		for (Task t: s.carriedTasks) {
-			if (!(this.carriedTasks.contains(t))) {
-				return false;
-			}
-		}
-		return true;
+		return this.currentCity.id == s.currentCity.id
+				&& this.carriedTasks == s.carriedTasks
+				&& this.availableTasks == s.availableTasks
+				&& this.taskIndex == s.taskIndex;
 	}
 	
 	// Same as above
 	@Override
 	public int hashCode() {
-		return Objects.hash(currentCity, availableTasks, carriedTasks);
+		long h = this.carriedTasks * 0x9E3779B97F4A7C15L + this.availableTasks;
+		h = h * 31 + this.currentCity.id;
+		return Long.hashCode(h);
 	}
 }
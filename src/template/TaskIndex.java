@@ -0,0 +1,76 @@
+package template;
+
+import datastructures.TopologyIndex;
+import logist.task.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-search numbering of the tasks. Every State of the same search shares one index, so a set of tasks can be
+// stored as a long bitmask (bit i <=> tasks[i]) instead of a list. It also holds the topology tables and the
+// search-wide heuristic cache.
+public class TaskIndex {
+	public static final int MAX_TASKS = Long.SIZE;
+
+	private final Task[] tasks;
+	private final TopologyIndex topology;
+	// MST cost by bitmask of city ids. Concurrent, since the states of a parallel search are created by many threads
+	private final ConcurrentHashMap<Long, Double> heuristicCache = new ConcurrentHashMap<>();
+
+	public TaskIndex(List<Task> tasks, TopologyIndex topology) {
+		if (tasks.size() > MAX_TASKS)
+			throw new IllegalArgumentException("A* search supports at most " + MAX_TASKS + " tasks, got " + tasks.size());
+		this.tasks = tasks.toArray(new Task[0]);
+		this.topology = topology;
+	}
+
+	public TopologyIndex getTopology() {
+		return this.topology;
+	}
+
+	public int size() {
+		return this.tasks.length;
+	}
+
+	public Task get(int i) {
+		return this.tasks[i];
+	}
+
+	// Bitmask of the given tasks. Tasks are matched by reference, as logist does
+	public long maskOf(List<Task> subset) {
+		long mask = 0L;
+		for (Task task : subset) {
+			int i = indexOf(task);
+			if (i < 0)
+				throw new IllegalArgumentException("Task " + task.id + " is not part of the search");
+			mask |= 1L << i;
+		}
+		return mask;
+	}
+
+	public int indexOf(Task task) {
+		for (int i = 0; i < this.tasks.length; i++) {
+			if (this.tasks[i] == task)
+				return i;
+		}
+		return -1;
+	}
+
+	// Materialize the tasks of a bitmask, in index order
+	public List<Task> tasksOf(long mask) {
+		List<Task> subset = new ArrayList<>(Long.bitCount(mask));
+		for (long m = mask; m != 0; m &= m - 1) {
+			subset.add(this.tasks[Long.numberOfTrailingZeros(m)]);
+		}
+		return subset;
+	}
+
+	public Double getCachedHeuristic(long cities) {
+		return this.heuristicCache.get(cities);
+	}
+
+	public void cacheHeuristic(long cities, double heuristic) {
+		this.heuristicCache.put(cities, heuristic);
+	}
+}